@@ -21,15 +21,25 @@ import com.enhancedprojects.enhancedspigot.common.stereotype.Controller;
 import com.enhancedprojects.enhancedspigot.data.connection.ConnectionType;
 import com.enhancedprojects.enhancedspigot.data.connection.DatabaseOptions;
 import com.enhancedprojects.enhancedspigot.data.connection.IConnectionHandler;
+import com.enhancedprojects.enhancedspigot.data.connection.InstrumentedConnectionSource;
 import com.enhancedprojects.enhancedspigot.data.connection.MySQLConnectionHandler;
 import com.enhancedprojects.enhancedspigot.data.connection.PostgreSQLConnectionHandler;
 import com.enhancedprojects.enhancedspigot.data.connection.SQLiteConnectionHandler;
+import com.enhancedprojects.enhancedspigot.data.journal.WriteAheadJournal;
+import com.enhancedprojects.enhancedspigot.data.metrics.MetricsRegistry;
 import com.enhancedprojects.enhancedspigot.data.persister.base.ItemStackPersister;
 import com.enhancedprojects.enhancedspigot.data.persister.base.ListPersister;
 import com.enhancedprojects.enhancedspigot.data.persister.base.LocationPersister;
 import com.enhancedprojects.enhancedspigot.data.persister.base.MapPersister;
 import com.enhancedprojects.enhancedspigot.data.persister.base.OfflinePlayerPersister;
 import com.enhancedprojects.enhancedspigot.data.persister.base.WorldPersister;
+import com.enhancedprojects.enhancedspigot.data.sync.DatabasePollingInvalidationTransport;
+import com.enhancedprojects.enhancedspigot.data.sync.InvalidationBus;
+import com.enhancedprojects.enhancedspigot.data.sync.LoopbackInvalidationTransport;
+import com.enhancedprojects.enhancedspigot.data.util.BoundedThreadExecutor;
+import com.enhancedprojects.enhancedspigot.data.util.KeyedPriorityExecutor;
+import com.enhancedprojects.enhancedspigot.data.util.PriorityJobQueue;
+import com.enhancedprojects.enhancedspigot.data.util.VirtualThreadSupport;
 import com.enhancedprojects.enhancedspigot.util.ReflectionUtil;
 import com.enhancedprojects.enhancedspigot.util.TryCatchUtil;
 import com.j256.ormlite.dao.Dao;
@@ -56,12 +66,13 @@ import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 
 @Getter @Setter public class DatabaseController extends Controller {
+	private static final int KEYED_LANES_PER_THREAD = 16;
+
 	private final File jarFile;
 	private final DatabaseOptions options;
 	private IConnectionHandler handler;
@@ -69,9 +80,18 @@ import java.util.logging.Level;
 
 	private ExecutorService readExecutor;
 	private ExecutorService writeExecutor;
+	private PriorityJobQueue readQueue;
+	private PriorityJobQueue writeQueue;
+	private WriteAheadJournal journal;
+	/**
+	 * Bus of changes shared with other servers, null when disabled
+	 * Custom bus has to be set before repositories are created
+	 */
+	private InvalidationBus invalidationBus;
 
 	private boolean debug;
 	private Map<Class<?>, Dao<?, ?>> daoMap;
+	private final MetricsRegistry metrics = new MetricsRegistry();
 
 	public DatabaseController(JavaPlugin plugin, DatabaseOptions options) {
 		super(plugin);
@@ -132,6 +152,14 @@ import java.util.logging.Level;
 		Dao<?, ?> dao = TryCatchUtil.tryAndReturn(() -> DaoManager.createDao(this.source, clazz));
 		TryCatchUtil.tryRun(() -> dao.setObjectCache(false));
 		this.daoMap.put(clazz, dao);
+		if (this.journal != null && dao != null) this.replayJournal(dao);
+	}
+
+	private void replayJournal(Dao<?, ?> dao) {
+		int replayed = this.journal.replay(dao);
+		if (replayed > 0) this.plugin.getLogger()
+			.info("Replayed " + replayed + " journaled writes of " + dao.getDataClass()
+				.getSimpleName());
 	}
 
 	@SuppressWarnings("unchecked")
@@ -189,21 +217,90 @@ import java.util.logging.Level;
 				throw new UnsupportedOperationException("Unsupported connection type: " + this.options.getType()
 					.name());
 		}
-		this.readExecutor = new ThreadPoolExecutor(this.options.getThreads(), this.options.getThreads(), 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
-		this.writeExecutor = this.options.getType() == ConnectionType.SQLITE ?
-			new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>()) :
-			this.readExecutor;
+		this.readQueue = new PriorityJobQueue(this.options.getPriorityAgingMillis());
+		ExecutorService pool = this.createPool(this.readQueue);
+		if (this.options.getType() == ConnectionType.SQLITE) {
+			this.writeQueue = new PriorityJobQueue(this.options.getPriorityAgingMillis());
+			this.readExecutor = pool;
+			this.writeExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS, this.writeQueue);
+		} else {
+			this.writeQueue = this.readQueue;
+			this.readExecutor = new KeyedPriorityExecutor(pool, this.options.getThreads() * KEYED_LANES_PER_THREAD);
+			this.writeExecutor = this.readExecutor;
+		}
+		this.registerExecutorMetrics();
 
 		this.handler.retrieveCredentials(this.options);
 		this.source = TryCatchUtil.tryAndReturn(() -> this.options.getHikariOptions()
 			.isEnabled() ?
 			this.handler.connectHikari(this.options.getHikariOptions()) :
 			this.handler.connect());
+		if (this.source != null && this.options.isSqlTiming()) this.source = new InstrumentedConnectionSource(this.source, this.metrics, this.plugin.getLogger(), this.options.getSlowQueryMillis());
+		if (this.source != null && this.options.isJournal()) this.openJournal();
 		this.registerDefaultPersisters();
+		if (this.source != null && this.invalidationBus == null) this.openInvalidationBus();
 
 		if (!this.debug) LoggerFactory.setLogBackendFactory(LogBackendType.NULL);
 	}
 
+	private void openJournal() {
+		this.journal = TryCatchUtil.tryAndReturn(() -> new WriteAheadJournal(new File(this.plugin.getDataFolder(), "journal.wal"), this.options.isJournalFsync(), this.options.getJournalCompactBytes(), this.plugin.getLogger()));
+		if (this.journal != null) this.metrics.registerGauge("journal.outstanding", this.journal::getOutstanding);
+	}
+
+	private void openInvalidationBus() {
+		switch (this.options.getInvalidationTransport()) {
+			case LOOPBACK:
+				this.invalidationBus = new InvalidationBus(new LoopbackInvalidationTransport());
+				break;
+			case DATABASE:
+				this.invalidationBus = new InvalidationBus(new DatabasePollingInvalidationTransport(this, this.plugin, this.options.getInvalidationPollTicks(), this.options.getInvalidationRetentionMillis()));
+				break;
+			default:
+				break;
+		}
+	}
+
+	private void registerExecutorMetrics() {
+		this.metrics.registerQueue("read", this.readQueue);
+		this.registerExecutorGauges("read", this.readExecutor);
+		if (this.writeExecutor == this.readExecutor) return;
+		this.metrics.registerQueue("write", this.writeQueue);
+		this.registerExecutorGauges("write", this.writeExecutor);
+	}
+
+	private void registerExecutorGauges(String name, ExecutorService executor) {
+		ExecutorService pool = executor instanceof KeyedPriorityExecutor ?
+			((KeyedPriorityExecutor) executor).getDelegate() :
+			executor;
+		if (pool instanceof ThreadPoolExecutor) {
+			ThreadPoolExecutor threadPool = (ThreadPoolExecutor) pool;
+			this.metrics.registerGauge(name + ".active", threadPool::getActiveCount);
+			this.metrics.registerGauge(name + ".threads", threadPool::getMaximumPoolSize);
+			this.metrics.registerGauge(name + ".completed", threadPool::getCompletedTaskCount);
+		} else if (pool instanceof BoundedThreadExecutor) {
+			BoundedThreadExecutor boundedPool = (BoundedThreadExecutor) pool;
+			this.metrics.registerGauge(name + ".active", boundedPool::getActiveCount);
+			this.metrics.registerGauge(name + ".threads", boundedPool::getMaxConcurrency);
+		}
+	}
+
+	private ExecutorService createPool(PriorityJobQueue queue) {
+		if (this.options.isUseVirtualThreads()) {
+			if (VirtualThreadSupport.isAvailable()) {
+				int maxConcurrency = this.options.getHikariOptions()
+					.isEnabled() ?
+					this.options.getHikariOptions()
+						.getMaximumPoolSize() :
+					this.options.getThreads();
+				return new BoundedThreadExecutor(VirtualThreadSupport.factory(), queue, maxConcurrency);
+			}
+			this.plugin.getLogger()
+				.warning("Virtual threads are not supported by this runtime, using platform threads");
+		}
+		return new ThreadPoolExecutor(this.options.getThreads(), this.options.getThreads(), 0L, TimeUnit.MILLISECONDS, queue);
+	}
+
 	@Override
 	public void reload() {
 
@@ -214,7 +311,16 @@ import java.util.logging.Level;
 	public void close() {
 		if (this.readExecutor != null) this.readExecutor.shutdownNow();
 		if (this.writeExecutor != null && !this.writeExecutor.equals(this.readExecutor)) this.writeExecutor.shutdownNow();
+		// Writes dropped from queues stay in journal and are replayed on next start
+		if (this.journal != null) {
+			this.journal.close();
+			this.journal = null;
+		}
 		if (this.source == null) return;
+		if (this.invalidationBus != null) {
+			this.invalidationBus.close();
+			this.invalidationBus = null;
+		}
 		this.source.close();
 		this.source = null;
 		this.handler.close();
@@ -19,6 +19,7 @@ package com.enhancedprojects.enhancedspigot.data.connection;
 import com.enhancedprojects.enhancedspigot.config.annotation.Comment;
 import com.enhancedprojects.enhancedspigot.config.annotation.Serializer;
 import com.enhancedprojects.enhancedspigot.config.serializer.impl.BaseSerializer;
+import com.enhancedprojects.enhancedspigot.data.sync.InvalidationTransportType;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -32,7 +33,26 @@ import lombok.Setter;
 	@Comment({"HikariCP options", "Don't change if you don't know what it is!"})
 	@Serializer(BaseSerializer.class)
 	private HikariOptions hikariOptions = new HikariOptions();
+	@Comment({"Configure only when using SQLite"})
+	@Serializer(BaseSerializer.class)
+	private SQLiteOptions sqliteOptions = new SQLiteOptions();
 	@Comment("Number of platform threads used for database operations") private int threads = 10;
+	@Comment({"Milliseconds of waiting that raise priority of queued database job by one", "Prevents low priority jobs from starving, 0 to disable"})
+	private long priorityAgingMillis = 0L;
+	@Comment({"Run database operations on virtual threads when server runs on Java 21+", "Number of running operations is limited to Hikari maximumPoolSize instead of threads"})
+	private boolean useVirtualThreads = false;
+	@Comment({"Time every executed SQL statement, results are included in metrics dump"}) private boolean sqlTiming = false;
+	@Comment({"Statements slower than this number of milliseconds are logged together with calling repository", "Works only with sqlTiming, 0 to disable"})
+	private long slowQueryMillis = 100L;
+	@Comment({"Append queued async writes to local journal file", "Writes not committed because of crash or database outage are replayed on next start"})
+	private boolean journal = false;
+	@Comment({"Force every journal write to disk", "Slower, but journal survives also power loss"}) private boolean journalFsync = false;
+	@Comment("Size of journal file in bytes after which committed writes are removed from it") private long journalCompactBytes = 67108864L;
+	@Comment({"Milliseconds that services wait for saves when draining repositories on shutdown"}) private long drainTimeoutMillis = 10000L;
+	@Comment({"Supported transports: NONE, LOOPBACK, DATABASE", "DATABASE drops cached rows changed by other servers using the same database"})
+	private InvalidationTransportType invalidationTransport = InvalidationTransportType.NONE;
+	@Comment("Ticks between reads of changes made by other servers") private long invalidationPollTicks = 20L;
+	@Comment("Milliseconds for which changes are kept in change log table") private long invalidationRetentionMillis = 300000L;
 
 	@Getter @Setter @NoArgsConstructor @AllArgsConstructor public static class Credentials {
 		private String host = "localhost";
@@ -51,5 +71,23 @@ import lombok.Setter;
 		private long maxLifetime = 1800000L;
 		private long connectionTimeout = 30000L;
 		private boolean useSSL = false;
+		@Comment({"Number of rows fetched at once when iterating large tables", "0 to use driver default"}) private int fetchSize = 0;
+		@Comment({"Supported profiles: DEFAULT, PERFORMANCE", "PERFORMANCE rewrites batches and caches prepared statements on MySQL and PostgreSQL"})
+		private DriverProfile profile = DriverProfile.DEFAULT;
+		@Comment("Maximum number of prepared statements cached per connection") private int prepStmtCacheSize = 250;
+		@Comment("Maximum length of cached prepared statement SQL (MySQL)") private int prepStmtCacheSqlLimit = 2048;
+		@Comment("Number of executions before statement is prepared on server (PostgreSQL)") private int prepareThreshold = 3;
+		@Comment({"Milliseconds after which socket read is aborted", "0 to disable"}) private long socketTimeout = 0L;
+		private long validationTimeout = 5000L;
+		@Comment({"Milliseconds after which connection not returned to pool is logged as possible leak", "0 to disable"}) private long leakDetectionThreshold = 0L;
+	}
+
+	@Getter @Setter @NoArgsConstructor @AllArgsConstructor public static class SQLiteOptions {
+		@Comment({"Use write-ahead log with one writer connection and pool of read-only connections", "Reads don't wait for writes, HikariCP is not used when enabled"})
+		private boolean wal = false;
+		@Comment("Number of read-only connections") private int readers = 4;
+		@Comment("Size of page cache of every connection in KiB") private int cacheSizeKb = 8192;
+		@Comment("Maximum number of bytes of database file mapped into memory") private long mmapSize = 268435456L;
+		@Comment("Milliseconds to wait when database is locked") private int busyTimeout = 5000;
 	}
 }
@@ -19,7 +19,7 @@ package com.enhancedprojects.enhancedspigot.data.connection;
 import com.zaxxer.hikari.HikariConfig;
 
 public class HikariHandler {
-	public static HikariConfig configure(HikariConfig config, DatabaseOptions.HikariOptions options) {
+	public static HikariConfig configure(HikariConfig config, DatabaseOptions.HikariOptions options, ConnectionType type) {
 		config.setPoolName(options.getPoolName());
 		config.setMaximumPoolSize(options.getMaximumPoolSize());
 		config.setMinimumIdle(options.getMinimumIdle());
@@ -29,6 +29,53 @@ public class HikariHandler {
 		config.addDataSourceProperty("characterEncoding", "utf8");
 		config.addDataSourceProperty("autoReconnect", "true");
 		config.addDataSourceProperty("useSSL", options.isUseSSL());
+		config.setValidationTimeout(options.getValidationTimeout());
+		config.setLeakDetectionThreshold(options.getLeakDetectionThreshold());
+		if (options.getFetchSize() > 0) configureFetchSize(config, options.getFetchSize(), type);
+		if (options.getProfile() == DriverProfile.PERFORMANCE) configurePerformance(config, options, type);
 		return config;
 	}
+
+	private static void configurePerformance(HikariConfig config, DatabaseOptions.HikariOptions options, ConnectionType type) {
+		switch (type) {
+			case MYSQL:
+				config.addDataSourceProperty("rewriteBatchedStatements", "true");
+				config.addDataSourceProperty("cachePrepStmts", "true");
+				config.addDataSourceProperty("prepStmtCacheSize", options.getPrepStmtCacheSize());
+				config.addDataSourceProperty("prepStmtCacheSqlLimit", options.getPrepStmtCacheSqlLimit());
+				config.addDataSourceProperty("useServerPrepStmts", "true");
+				config.addDataSourceProperty("useLocalSessionState", "true");
+				config.addDataSourceProperty("cacheResultSetMetadata", "true");
+				config.addDataSourceProperty("cacheServerConfiguration", "true");
+				config.addDataSourceProperty("elideSetAutoCommits", "true");
+				config.addDataSourceProperty("maintainTimeStats", "false");
+				config.addDataSourceProperty("connectTimeout", options.getConnectionTimeout());
+				if (options.getSocketTimeout() > 0) config.addDataSourceProperty("socketTimeout", options.getSocketTimeout());
+				break;
+			case POSTGRESQL:
+				config.addDataSourceProperty("reWriteBatchedInserts", "true");
+				config.addDataSourceProperty("prepareThreshold", options.getPrepareThreshold());
+				config.addDataSourceProperty("preparedStatementCacheQueries", options.getPrepStmtCacheSize());
+				// PostgreSQL driver timeouts are in seconds
+				config.addDataSourceProperty("connectTimeout", Math.max(1L, options.getConnectionTimeout() / 1000L));
+				if (options.getSocketTimeout() > 0) config.addDataSourceProperty("socketTimeout", Math.max(1L, options.getSocketTimeout() / 1000L));
+				break;
+			default:
+				break;
+		}
+	}
+
+	private static void configureFetchSize(HikariConfig config, int fetchSize, ConnectionType type) {
+		switch (type) {
+			case MYSQL:
+				config.addDataSourceProperty("useCursorFetch", "true");
+				config.addDataSourceProperty("defaultFetchSize", fetchSize);
+				break;
+			case POSTGRESQL:
+				config.addDataSourceProperty("defaultRowFetchSize", fetchSize);
+				break;
+			default:
+				break;
+		}
+	}
 }
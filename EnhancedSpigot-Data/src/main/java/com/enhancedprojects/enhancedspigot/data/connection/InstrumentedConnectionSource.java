@@ -0,0 +1,253 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.connection;
+
+import com.enhancedprojects.enhancedspigot.data.metrics.MetricsRegistry;
+import com.enhancedprojects.enhancedspigot.data.metrics.RepositoryMetrics;
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.support.BaseConnectionSource;
+import com.j256.ormlite.support.CompiledStatement;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+/**
+ * Connection source that times every executed SQL statement
+ * Statements are recorded in {@link MetricsRegistry} by normalized SQL and statements slower than threshold are logged
+ */
+public class InstrumentedConnectionSource extends BaseConnectionSource {
+	private static final Set<String> CONNECTION_METHODS = new HashSet<>(Arrays.asList("executeStatement", "insert", "update", "delete", "queryForOne", "queryForLong"));
+	private static final Set<String> STATEMENT_METHODS = new HashSet<>(Arrays.asList("runQuery", "runUpdate", "runExecute"));
+	private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+	private static final Pattern NUMBER_LITERAL = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+	private static final Pattern IN_LIST = Pattern.compile("IN\\s*\\(\\s*\\?(?:\\s*,\\s*\\?)*\\s*\\)", Pattern.CASE_INSENSITIVE);
+	private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+	@Getter private final ConnectionSource delegate;
+	private final MetricsRegistry metrics;
+	private final Logger logger;
+	/**
+	 * Statements that take longer are logged, 0 to disable logging
+	 */
+	@Getter @Setter private volatile long slowQueryMillis;
+
+	public InstrumentedConnectionSource(ConnectionSource delegate, MetricsRegistry metrics, Logger logger, long slowQueryMillis) {
+		this.delegate = delegate;
+		this.metrics = metrics;
+		this.logger = logger;
+		this.slowQueryMillis = slowQueryMillis;
+	}
+
+	/**
+	 * Replace literals with placeholders, so statements that differ only in values are aggregated together
+	 *
+	 * @param sql SQL statement
+	 * @return Normalized statement
+	 */
+	public static String normalize(String sql) {
+		String result = STRING_LITERAL.matcher(sql)
+			.replaceAll("?");
+		result = NUMBER_LITERAL.matcher(result)
+			.replaceAll("?");
+		result = IN_LIST.matcher(result)
+			.replaceAll("IN (?)");
+		return WHITESPACE.matcher(result)
+			.replaceAll(" ")
+			.trim();
+	}
+
+	@Override
+	public DatabaseConnection getReadOnlyConnection(String tableName) throws SQLException {
+		return this.wrap(this.delegate.getReadOnlyConnection(tableName));
+	}
+
+	@Override
+	public DatabaseConnection getReadWriteConnection(String tableName) throws SQLException {
+		return this.wrap(this.delegate.getReadWriteConnection(tableName));
+	}
+
+	@Override
+	public void releaseConnection(DatabaseConnection connection) throws SQLException {
+		this.delegate.releaseConnection(unwrap(connection));
+	}
+
+	@Override
+	public boolean saveSpecialConnection(DatabaseConnection connection) throws SQLException {
+		return this.delegate.saveSpecialConnection(unwrap(connection));
+	}
+
+	@Override
+	public void clearSpecialConnection(DatabaseConnection connection) {
+		this.delegate.clearSpecialConnection(unwrap(connection));
+	}
+
+	@Override
+	public DatabaseConnection getSpecialConnection(String tableName) {
+		return this.wrap(this.delegate.getSpecialConnection(tableName));
+	}
+
+	@Override
+	public void closeQuietly() {
+		this.delegate.closeQuietly();
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			this.delegate.close();
+		} catch (IOException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new IOException(e);
+		}
+	}
+
+	@Override
+	public DatabaseType getDatabaseType() {
+		return this.delegate.getDatabaseType();
+	}
+
+	@Override
+	public boolean isOpen(String tableName) {
+		return this.delegate.isOpen(tableName);
+	}
+
+	@Override
+	public boolean isSingleConnection(String tableName) {
+		return this.delegate.isSingleConnection(tableName);
+	}
+
+	private DatabaseConnection wrap(DatabaseConnection connection) {
+		if (connection == null || Proxy.isProxyClass(connection.getClass())) return connection;
+		return (DatabaseConnection) Proxy.newProxyInstance(
+			DatabaseConnection.class.getClassLoader(), new Class<?>[]{DatabaseConnection.class}, new ConnectionInvocationHandler(connection));
+	}
+
+	private static DatabaseConnection unwrap(DatabaseConnection connection) {
+		if (connection == null || !Proxy.isProxyClass(connection.getClass())) return connection;
+		InvocationHandler handler = Proxy.getInvocationHandler(connection);
+		return handler instanceof ConnectionInvocationHandler ?
+			((ConnectionInvocationHandler) handler).connection :
+			connection;
+	}
+
+	private Object timed(String sql, Object target, Method method, Object[] args) throws Throwable {
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			Object result = method.invoke(target, args);
+			success = true;
+			return result;
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		} finally {
+			this.record(sql, System.nanoTime() - start, success);
+		}
+	}
+
+	private void record(String sql, long nanos, boolean success) {
+		String normalized = normalize(sql);
+		this.metrics.getStatement(normalized)
+			.record(nanos, success);
+
+		long slowQueryMillis = this.slowQueryMillis;
+		if (slowQueryMillis <= 0L || nanos < TimeUnit.MILLISECONDS.toNanos(slowQueryMillis)) return;
+		String repository = RepositoryMetrics.getCurrentRepository();
+		this.logger.warning(String.format(
+			"Slow query (%.1f ms) from %s at %s: %s", nanos / 1_000_000D, repository == null ?
+				"unknown repository" :
+				repository, findCaller(), normalized
+		));
+	}
+
+	private static String findCaller() {
+		for (StackTraceElement element : new Throwable().getStackTrace()) {
+			String className = element.getClassName();
+			if (className.startsWith("java.") || className.startsWith("javax.") || className.startsWith("sun.") || className.startsWith("jdk.") || className.startsWith(
+				"com.sun.") || className.startsWith("com.j256.ormlite.") || className.startsWith("com.zaxxer.") || className.startsWith(
+				"com.enhancedprojects.enhancedspigot.data.connection.") || className.startsWith("com.enhancedprojects.enhancedspigot.data.metrics.") || className.startsWith(
+				"com.enhancedprojects.enhancedspigot.util.") || className.contains("$Proxy")) {
+				continue;
+			}
+			return className.substring(className.lastIndexOf('.') + 1) + "." + element.getMethodName() + ":" + element.getLineNumber();
+		}
+		return "unknown";
+	}
+
+	private class ConnectionInvocationHandler implements InvocationHandler {
+		private final DatabaseConnection connection;
+
+		private ConnectionInvocationHandler(DatabaseConnection connection) {
+			this.connection = connection;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			String name = method.getName();
+			if (args != null && args.length > 0 && args[0] instanceof String) {
+				if (CONNECTION_METHODS.contains(name)) return timed((String) args[0], this.connection, method, args);
+				if (name.equals("compileStatement")) {
+					CompiledStatement statement = (CompiledStatement) invokeTarget(this.connection, method, args);
+					return Proxy.newProxyInstance(
+						CompiledStatement.class.getClassLoader(), new Class<?>[]{CompiledStatement.class}, new StatementInvocationHandler((String) args[0], statement));
+				}
+			}
+			if (name.equals("equals") && args != null && args.length == 1) return this.connection.equals(args[0] instanceof DatabaseConnection ?
+				unwrap((DatabaseConnection) args[0]) :
+				args[0]);
+			return invokeTarget(this.connection, method, args);
+		}
+	}
+
+	private class StatementInvocationHandler implements InvocationHandler {
+		private final String sql;
+		private final CompiledStatement statement;
+
+		private StatementInvocationHandler(String sql, CompiledStatement statement) {
+			this.sql = sql;
+			this.statement = statement;
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (STATEMENT_METHODS.contains(method.getName())) return timed(this.sql, this.statement, method, args);
+			return invokeTarget(this.statement, method, args);
+		}
+	}
+
+	private static Object invokeTarget(Object target, Method method, Object[] args) throws Throwable {
+		try {
+			return method.invoke(target, args);
+		} catch (InvocationTargetException e) {
+			throw e.getCause();
+		}
+	}
+}
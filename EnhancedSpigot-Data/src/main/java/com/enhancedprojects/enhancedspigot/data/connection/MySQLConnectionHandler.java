@@ -56,7 +56,7 @@ public class MySQLConnectionHandler implements IConnectionHandler {
 		config.setPassword(this.credentials.getPassword());
 
 		TryCatchUtil.tryAndReturn(() -> Class.forName("com.mysql.cj.jdbc.Driver"));
-		this.dataSource = new HikariDataSource(HikariHandler.configure(config, options));
+		this.dataSource = new HikariDataSource(HikariHandler.configure(config, options, ConnectionType.MYSQL));
 
 		return new DataSourceConnectionSource(this.dataSource, this.dataSource.getJdbcUrl());
 	}
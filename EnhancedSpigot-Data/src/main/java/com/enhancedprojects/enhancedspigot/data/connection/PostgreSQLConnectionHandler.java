@@ -34,7 +34,7 @@ public class PostgreSQLConnectionHandler implements IConnectionHandler {
 
 	@Override
 	public ConnectionType getConnectionType() {
-		return ConnectionType.MYSQL;
+		return ConnectionType.POSTGRESQL;
 	}
 
 	@Override
@@ -56,7 +56,7 @@ public class PostgreSQLConnectionHandler implements IConnectionHandler {
 		config.setPassword(this.credentials.getPassword());
 
 		TryCatchUtil.tryAndReturn(() -> Class.forName("org.postgresql.Driver"));
-		this.dataSource = new HikariDataSource(HikariHandler.configure(config, options));
+		this.dataSource = new HikariDataSource(HikariHandler.configure(config, options, ConnectionType.POSTGRESQL));
 
 		return new DataSourceConnectionSource(this.dataSource, this.dataSource.getJdbcUrl());
 	}
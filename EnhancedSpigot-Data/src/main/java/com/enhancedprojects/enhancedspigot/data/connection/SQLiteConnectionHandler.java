@@ -32,6 +32,7 @@ public class SQLiteConnectionHandler implements IConnectionHandler {
 	private final String fileName = "database.db";
 	private final File file;
 	private HikariDataSource dataSource;
+	private DatabaseOptions.SQLiteOptions options = new DatabaseOptions.SQLiteOptions();
 
 	public SQLiteConnectionHandler(File dataFolder) {
 		this.file = new File(dataFolder, this.fileName);
@@ -44,7 +45,7 @@ public class SQLiteConnectionHandler implements IConnectionHandler {
 
 	@Override
 	public void retrieveCredentials(DatabaseOptions options) {
-		return;
+		this.options = options.getSqliteOptions();
 	}
 
 	@Override
@@ -56,17 +57,23 @@ public class SQLiteConnectionHandler implements IConnectionHandler {
 		}
 
 		String connectionUrl = "jdbc:sqlite:" + this.file.getAbsolutePath();
+		if (this.options.isWal()) {
+			TryCatchUtil.tryAndReturn(() -> Class.forName("org.sqlite.JDBC"));
+			return new SqliteWalConnectionSource(connectionUrl, this.options);
+		}
 		return new SqliteConnectionSource(connectionUrl, new SqliteDatabaseType());
 	}
 
 	@Override
 	public BaseConnectionSource connectHikari(DatabaseOptions.HikariOptions options) throws IOException, SQLException {
+		if (this.options.isWal()) return this.connect();
+
 		HikariConfig config = new HikariConfig();
 		config.setJdbcUrl("jdbc:sqlite:" + this.file.getAbsolutePath());
 		config.setConnectionInitSql("PRAGMA foreign_keys = ON;");
 
 		TryCatchUtil.tryAndReturn(() -> Class.forName("org.sqlite.JDBC"));
-		this.dataSource = new HikariDataSource(HikariHandler.configure(config, options));
+		this.dataSource = new HikariDataSource(HikariHandler.configure(config, options, ConnectionType.SQLITE));
 
 		return new DataSourceConnectionSource(this.dataSource, this.dataSource.getJdbcUrl());
 	}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.connection;
+
+import com.j256.ormlite.db.DatabaseType;
+import com.j256.ormlite.jdbc.JdbcDatabaseConnection;
+import com.j256.ormlite.jdbc.db.SqliteDatabaseType;
+import com.j256.ormlite.logger.Logger;
+import com.j256.ormlite.logger.LoggerFactory;
+import com.j256.ormlite.support.BaseConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SQLite connection source for write-ahead log mode
+ * All writes use one connection guarded by lock, reads use pool of read-only connections, so they don't wait for writer
+ */
+public class SqliteWalConnectionSource extends BaseConnectionSource {
+	private static final Logger LOGGER = LoggerFactory.getLogger(SqliteWalConnectionSource.class);
+
+	private final String url;
+	private final DatabaseOptions.SQLiteOptions options;
+	private final DatabaseType databaseType = new SqliteDatabaseType();
+	private final ReentrantLock writerLock = new ReentrantLock(true);
+	private final DatabaseConnection writer;
+	private final BlockingQueue<DatabaseConnection> idleReaders = new LinkedBlockingQueue<>();
+	private final List<DatabaseConnection> readers = new ArrayList<>();
+	private volatile boolean open = true;
+
+	public SqliteWalConnectionSource(String url, DatabaseOptions.SQLiteOptions options) throws SQLException {
+		this.url = url;
+		this.options = options;
+		this.writer = this.openConnection(false);
+	}
+
+	private DatabaseConnection openConnection(boolean readOnly) throws SQLException {
+		Connection connection = DriverManager.getConnection(this.url);
+		try (Statement statement = connection.createStatement()) {
+			statement.execute("PRAGMA busy_timeout = " + this.options.getBusyTimeout());
+			if (!readOnly) {
+				statement.execute("PRAGMA journal_mode = WAL");
+				statement.execute("PRAGMA synchronous = NORMAL");
+			}
+			statement.execute("PRAGMA foreign_keys = ON");
+			statement.execute("PRAGMA cache_size = -" + this.options.getCacheSizeKb());
+			statement.execute("PRAGMA mmap_size = " + this.options.getMmapSize());
+			if (readOnly) statement.execute("PRAGMA query_only = ON");
+		} catch (SQLException e) {
+			connection.close();
+			throw e;
+		}
+		return new JdbcDatabaseConnection(connection);
+	}
+
+	@Override
+	public DatabaseConnection getReadOnlyConnection(String tableName) throws SQLException {
+		DatabaseConnection saved = this.getSavedConnection();
+		if (saved != null || this.writerLock.isHeldByCurrentThread()) return this.getReadWriteConnection(tableName);
+
+		DatabaseConnection reader = this.idleReaders.poll();
+		if (reader != null) return reader;
+		synchronized (this.readers) {
+			if (this.readers.size() < Math.max(1, this.options.getReaders())) {
+				reader = this.openConnection(true);
+				this.readers.add(reader);
+				return reader;
+			}
+		}
+		try {
+			return this.idleReaders.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				.interrupt();
+			throw new SQLException("Interrupted while waiting for SQLite reader connection", e);
+		}
+	}
+
+	@Override
+	public DatabaseConnection getReadWriteConnection(String tableName) throws SQLException {
+		if (!this.open) throw new SQLException("Connection source is closed");
+		this.writerLock.lock();
+		return this.writer;
+	}
+
+	@Override
+	public void releaseConnection(DatabaseConnection connection) throws SQLException {
+		if (connection == this.writer) {
+			this.writerLock.unlock();
+			return;
+		}
+		if (this.open) this.idleReaders.offer(connection);
+		else connection.closeQuietly();
+	}
+
+	@Override
+	public boolean saveSpecialConnection(DatabaseConnection connection) throws SQLException {
+		return this.saveSpecial(connection);
+	}
+
+	@Override
+	public void clearSpecialConnection(DatabaseConnection connection) {
+		this.clearSpecial(connection, LOGGER);
+	}
+
+	@Override
+	public void closeQuietly() {
+		this.open = false;
+		synchronized (this.readers) {
+			this.readers.forEach(DatabaseConnection::closeQuietly);
+			this.readers.clear();
+		}
+		this.idleReaders.clear();
+		this.writer.closeQuietly();
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.closeQuietly();
+	}
+
+	@Override
+	public DatabaseType getDatabaseType() {
+		return this.databaseType;
+	}
+
+	@Override
+	public boolean isOpen(String tableName) {
+		return this.open;
+	}
+
+	@Override
+	public boolean isSingleConnection(String tableName) {
+		return false;
+	}
+}
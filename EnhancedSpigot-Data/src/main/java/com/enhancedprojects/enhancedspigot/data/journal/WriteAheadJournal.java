@@ -0,0 +1,382 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.journal;
+
+import com.enhancedprojects.enhancedspigot.data.util.EntityBinaryCodec;
+import com.enhancedprojects.enhancedspigot.data.util.EntityColumnUtil;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.table.TableInfo;
+import lombok.AllArgsConstructor;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of writes that were queued, but not committed to database yet
+ * Write is appended before its job is queued and acknowledged after commit
+ * Writes that were never acknowledged are replayed when their entity is registered after restart
+ * File is truncated whenever no write is outstanding and rewritten when it grows too much
+ * Entities without id are not journaled, replay cannot tell whether their generated id was already created
+ */
+public class WriteAheadJournal implements Closeable {
+	private static final byte SAVE = 1;
+	private static final byte DELETE = 2;
+	private static final byte ACK = 3;
+	private static final int MAX_RECORD_SIZE = 64 * 1024 * 1024;
+
+	private final File file;
+	private final boolean fsync;
+	private final long compactBytes;
+	private final Logger logger;
+	private final Map<Class<?>, EntityBinaryCodec<?>> codecs = new ConcurrentHashMap<>();
+	/**
+	 * Writes that were not acknowledged, ordered by sequence
+	 */
+	private final LinkedHashMap<Long, Record> outstanding = new LinkedHashMap<>();
+	/**
+	 * Sequences of outstanding writes with id, grouped by entity and ordered by sequence
+	 */
+	private final Map<String, ArrayDeque<Long>> outstandingByEntity = new HashMap<>();
+
+	private FileChannel channel;
+	private long nextSequence = 1L;
+	private long outstandingBytes;
+
+	/**
+	 * Open journal and load writes that were not acknowledged before
+	 *
+	 * @param file         Journal file
+	 * @param fsync        Force every write to disk, otherwise the journal survives process crash, but not power loss
+	 * @param compactBytes Size of file after which acknowledged writes are removed from it
+	 * @param logger       Logger of plugin
+	 * @throws IOException when file cannot be opened
+	 */
+	public WriteAheadJournal(File file, boolean fsync, long compactBytes, Logger logger) throws IOException {
+		this.file = file;
+		this.fsync = fsync;
+		this.compactBytes = compactBytes;
+		this.logger = logger;
+
+		File parent = file.getParentFile();
+		if (parent != null) parent.mkdirs();
+		if (file.exists()) this.read();
+		this.outstanding.values()
+			.forEach(this::index);
+		this.rewrite();
+	}
+
+	/**
+	 * Append save of entity
+	 *
+	 * @param dao    Dao of entity
+	 * @param entity Entity to save
+	 * @return Sequence that should be acknowledged after commit, 0 when entity has no id yet
+	 */
+	public <T> long appendSave(Dao<T, ?> dao, T entity) throws SQLException, IOException {
+		return this.append(SAVE, dao, entity);
+	}
+
+	/**
+	 * Append delete of entity
+	 *
+	 * @param dao    Dao of entity
+	 * @param entity Entity to delete
+	 * @return Sequence that should be acknowledged after commit, 0 when entity has no id yet
+	 */
+	public <T> long appendDelete(Dao<T, ?> dao, T entity) throws SQLException, IOException {
+		return this.append(DELETE, dao, entity);
+	}
+
+	private <T> long append(byte operation, Dao<T, ?> dao, T entity) throws SQLException, IOException {
+		TableInfo<T, ?> tableInfo = EntityColumnUtil.getTableInfo(dao);
+		if (tableInfo == null || tableInfo.getIdField() == null) throw new SQLException("Cannot journal " + dao.getDataClass()
+			.getName());
+		FieldType idField = tableInfo.getIdField();
+		Object id = idField.extractJavaFieldValue(entity);
+		if (id == null || idField.isGeneratedId() && idField.isObjectsFieldValueDefault(entity)) return 0L;
+		byte[] data = this.getCodec(dao)
+			.encode(entity);
+
+		synchronized (this) {
+			Record record = new Record(
+				operation, this.nextSequence++, dao.getDataClass()
+				.getName(), String.valueOf(id), data
+			);
+			this.write(record.toFrame());
+			this.outstanding.put(record.sequence, record);
+			this.index(record);
+			this.outstandingBytes += record.size();
+			return record.sequence;
+		}
+	}
+
+	/**
+	 * Acknowledge that write was committed
+	 * Older writes of the same entity are acknowledged too, because this write replaced them
+	 *
+	 * @param sequence Sequence returned by append, 0 is ignored
+	 */
+	public synchronized void acknowledge(long sequence) {
+		Record record = this.outstanding.get(sequence);
+		if (record == null) return;
+
+		List<Long> acknowledged = new ArrayList<>();
+		ArrayDeque<Long> writes = record.id.isEmpty() ?
+			null :
+			this.outstandingByEntity.get(record.getEntityKey());
+		if (writes == null) acknowledged.add(sequence);
+		else {
+			while (!writes.isEmpty() && writes.peekFirst() <= sequence) {
+				acknowledged.add(writes.pollFirst());
+			}
+			if (writes.isEmpty()) this.outstandingByEntity.remove(record.getEntityKey());
+		}
+		acknowledged.forEach(ack -> this.outstandingBytes -= this.outstanding.remove(ack)
+			.size());
+
+		try {
+			if (this.outstanding.isEmpty()) {
+				this.channel.truncate(0L);
+				return;
+			}
+			for (long ack : acknowledged) {
+				this.write(new Record(ACK, ack, "", "", new byte[0]).toFrame());
+			}
+			long size = this.channel.size();
+			if (size > this.compactBytes && this.outstandingBytes * 2 < size) this.rewrite();
+		} catch (IOException e) {
+			this.logger.log(Level.WARNING, "Cannot write to journal " + this.file.getName(), e);
+		}
+	}
+
+	/**
+	 * Replay outstanding writes of entity class and acknowledge the ones that reached database
+	 * Failed writes and saves rejected by version of row stay in journal and are replayed again on next start
+	 *
+	 * @param dao Dao of entity class
+	 * @return Number of replayed writes
+	 */
+	public <T> int replay(Dao<T, ?> dao) {
+		String className = dao.getDataClass()
+			.getName();
+		List<Record> records;
+		synchronized (this) {
+			records = this.outstanding.values()
+				.stream()
+				.filter(record -> record.className.equals(className))
+				.collect(Collectors.toList());
+		}
+
+		int replayed = 0;
+		for (Record record : records) {
+			if (record.id.isEmpty()) {
+				// Create of generated id cannot be replayed without duplicating the row
+				this.logger.warning("Skipped journaled write of " + className + " without id");
+				this.acknowledge(record.sequence);
+				continue;
+			}
+			try {
+				T entity = this.getCodec(dao)
+					.decode(record.data);
+				if (record.operation == DELETE) {
+					// Row that is already missing was deleted before, so delete is acknowledged either way
+					dao.delete(entity);
+				} else if (dao.createOrUpdate(entity)
+					.getNumLinesChanged() == 0) {
+					// Versioned row was changed in the meantime
+					this.logger.warning("Journaled write of " + className + " " + record.id + " was rejected by database, it stays in journal");
+					continue;
+				}
+				this.acknowledge(record.sequence);
+				replayed++;
+			} catch (SQLException e) {
+				this.logger.log(Level.WARNING, "Cannot replay journaled write of " + className, e);
+			}
+		}
+		return replayed;
+	}
+
+	public synchronized int getOutstanding() {
+		return this.outstanding.size();
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		if (this.channel != null) this.channel.close();
+	}
+
+	private void index(Record record) {
+		if (record.id.isEmpty()) return;
+		this.outstandingByEntity.computeIfAbsent(record.getEntityKey(), key -> new ArrayDeque<>())
+			.addLast(record.sequence);
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> EntityBinaryCodec<T> getCodec(Dao<T, ?> dao) {
+		return (EntityBinaryCodec<T>) this.codecs.computeIfAbsent(dao.getDataClass(), clazz -> new EntityBinaryCodec<>(dao));
+	}
+
+	private void write(byte[] frame) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(frame);
+		while (buffer.hasRemaining()) {
+			this.channel.write(buffer);
+		}
+		if (this.fsync) this.channel.force(false);
+	}
+
+	/**
+	 * Load records from file
+	 * Reading stops at the first incomplete or damaged record, which is a write interrupted by crash
+	 */
+	private void read() throws IOException {
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(this.file)))) {
+			while (true) {
+				int length = in.readInt();
+				long checksum = in.readInt() & 0xFFFFFFFFL;
+				if (length <= 0 || length > MAX_RECORD_SIZE) break;
+
+				byte[] body = new byte[length];
+				in.readFully(body);
+				if (checksum(body) != checksum) break;
+
+				Record record = Record.parse(body);
+				this.nextSequence = Math.max(this.nextSequence, record.sequence + 1);
+				if (record.operation == ACK) {
+					Record removed = this.outstanding.remove(record.sequence);
+					if (removed != null) this.outstandingBytes -= removed.size();
+				} else {
+					this.outstanding.put(record.sequence, record);
+					this.outstandingBytes += record.size();
+				}
+			}
+			this.logger.warning("Journal " + this.file.getName() + " ends with damaged record, it was skipped");
+		} catch (EOFException ignored) {
+		}
+	}
+
+	/**
+	 * Replace file with one that contains only outstanding writes
+	 */
+	private void rewrite() throws IOException {
+		File temp = new File(this.file.getPath() + ".tmp");
+		try (FileChannel target = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (Record record : this.outstanding.values()) {
+				ByteBuffer buffer = ByteBuffer.wrap(record.toFrame());
+				while (buffer.hasRemaining()) {
+					target.write(buffer);
+				}
+			}
+			target.force(true);
+		}
+
+		if (this.channel != null) this.channel.close();
+		try {
+			Files.move(temp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (AtomicMoveNotSupportedException e) {
+			Files.move(temp.toPath(), this.file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+		this.channel = FileChannel.open(this.file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+	private static long checksum(byte[] body) {
+		CRC32 crc = new CRC32();
+		crc.update(body, 0, body.length);
+		return crc.getValue();
+	}
+
+	@AllArgsConstructor private static class Record {
+		private final byte operation;
+		private final long sequence;
+		private final String className;
+		/**
+		 * Id of entity, empty only in records written before entities without id were skipped
+		 */
+		private final String id;
+		private final byte[] data;
+
+		private static Record parse(byte[] body) throws IOException {
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(body));
+			byte operation = in.readByte();
+			long sequence = in.readLong();
+			String className = in.readUTF();
+			String id = in.readUTF();
+			byte[] data = new byte[in.readInt()];
+			in.readFully(data);
+			return new Record(operation, sequence, className, id, data);
+		}
+
+		/**
+		 * Frame with length, checksum and body of record
+		 */
+		private byte[] toFrame() throws IOException {
+			ByteArrayOutputStream bodyBytes = new ByteArrayOutputStream(this.data.length + 64);
+			try (DataOutputStream out = new DataOutputStream(bodyBytes)) {
+				out.writeByte(this.operation);
+				out.writeLong(this.sequence);
+				out.writeUTF(this.className);
+				out.writeUTF(this.id);
+				out.writeInt(this.data.length);
+				out.write(this.data);
+			}
+			byte[] body = bodyBytes.toByteArray();
+
+			ByteBuffer frame = ByteBuffer.allocate(body.length + 8);
+			frame.putInt(body.length);
+			frame.putInt((int) checksum(body));
+			frame.put(body);
+			return frame.array();
+		}
+
+		/**
+		 * Key shared by all writes of the same entity
+		 */
+		private String getEntityKey() {
+			return this.className + '\u0000' + this.id;
+		}
+
+		private long size() {
+			return this.data.length + this.className.length() + this.id.length() + 23L;
+		}
+	}
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock-free histogram of durations
+ * Durations are stored in power of two buckets of microseconds, so percentiles are upper bounds
+ */
+public class LatencyHistogram {
+	private static final int BUCKETS = 40;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong totalNanos = new AtomicLong();
+	private final AtomicLong maxNanos = new AtomicLong();
+
+	/**
+	 * Record duration
+	 *
+	 * @param nanos Duration in nanoseconds
+	 */
+	public void record(long nanos) {
+		long value = Math.max(0L, nanos);
+		long micros = TimeUnit.NANOSECONDS.toMicros(value);
+		int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(micros));
+		this.buckets.incrementAndGet(bucket);
+		this.count.incrementAndGet();
+		this.totalNanos.addAndGet(value);
+		this.maxNanos.accumulateAndGet(value, Math::max);
+	}
+
+	public long getCount() {
+		return this.count.get();
+	}
+
+	public double getMeanMillis() {
+		long count = this.count.get();
+		return count == 0 ?
+			0D :
+			this.totalNanos.get() / (double) count / 1_000_000D;
+	}
+
+	public double getMaxMillis() {
+		return this.maxNanos.get() / 1_000_000D;
+	}
+
+	/**
+	 * Get upper bound of percentile
+	 *
+	 * @param percentile Percentile from 0 to 1
+	 * @return Duration in milliseconds
+	 */
+	public double getPercentileMillis(double percentile) {
+		long count = this.count.get();
+		if (count == 0) return 0D;
+
+		long threshold = (long) Math.ceil(count * Math.min(1D, Math.max(0D, percentile)));
+		long seen = 0L;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += this.buckets.get(i);
+			if (seen >= Math.max(1L, threshold)) return Math.min((1L << i) / 1_000D, this.getMaxMillis());
+		}
+		return this.getMaxMillis();
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			this.buckets.set(i, 0L);
+		}
+		this.count.set(0L);
+		this.totalNanos.set(0L);
+		this.maxNanos.set(0L);
+	}
+
+	@Override
+	public String toString() {
+		return String.format(
+			"count=%d mean=%.2fms p50=%.2fms p95=%.2fms p99=%.2fms max=%.2fms", this.getCount(), this.getMeanMillis(), this.getPercentileMillis(0.5D),
+			this.getPercentileMillis(0.95D), this.getPercentileMillis(0.99D), this.getMaxMillis()
+		);
+	}
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.metrics;
+
+import com.enhancedprojects.enhancedspigot.data.util.PriorityJobQueue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Metrics of all repositories and executors of DatabaseController
+ */
+public class MetricsRegistry {
+	private static final int DUMPED_STATEMENTS = 10;
+
+	private final ConcurrentMap<String, RepositoryMetrics> repositories = new ConcurrentHashMap<>();
+	private final Map<String, Supplier<Number>> gauges = new ConcurrentHashMap<>();
+	private final Map<String, PriorityJobQueue> queues = new ConcurrentHashMap<>();
+	private final ConcurrentMap<String, OperationMetrics> statements = new ConcurrentHashMap<>();
+
+	/**
+	 * Get metrics of repository, they are created when not present
+	 *
+	 * @param name Name of repository
+	 * @return Metrics of repository
+	 */
+	public RepositoryMetrics getRepository(String name) {
+		return this.repositories.computeIfAbsent(name, RepositoryMetrics::new);
+	}
+
+	public Map<String, RepositoryMetrics> getRepositories() {
+		return Collections.unmodifiableMap(new TreeMap<>(this.repositories));
+	}
+
+	/**
+	 * Get metrics of SQL statement, they are created when not present
+	 *
+	 * @param sql Normalized SQL statement
+	 * @return Metrics of statement
+	 */
+	public OperationMetrics getStatement(String sql) {
+		return this.statements.computeIfAbsent(sql, s -> new OperationMetrics());
+	}
+
+	public Map<String, OperationMetrics> getStatements() {
+		return Collections.unmodifiableMap(new TreeMap<>(this.statements));
+	}
+
+	/**
+	 * Register value that is read every time metrics are read
+	 *
+	 * @param name  Name of gauge
+	 * @param gauge Supplier of value
+	 */
+	public void registerGauge(String name, Supplier<Number> gauge) {
+		this.gauges.put(name, gauge);
+	}
+
+	public Map<String, Number> getGauges() {
+		Map<String, Number> result = new TreeMap<>();
+		this.gauges.forEach((name, gauge) -> result.put(name, gauge.get()));
+		return result;
+	}
+
+	/**
+	 * Register job queue, its depth and wait times are included in dump
+	 *
+	 * @param name  Name of queue
+	 * @param queue Queue instance
+	 */
+	public void registerQueue(String name, PriorityJobQueue queue) {
+		this.queues.put(name, queue);
+	}
+
+	public Map<String, PriorityJobQueue> getQueues() {
+		return Collections.unmodifiableMap(new LinkedHashMap<>(this.queues));
+	}
+
+	/**
+	 * Clear recorded values, registered gauges and queues stay
+	 */
+	public void reset() {
+		this.repositories.values()
+			.forEach(RepositoryMetrics::reset);
+		this.statements.clear();
+	}
+
+	/**
+	 * Dump all metrics as human-readable lines, e.g. to send them to command sender
+	 *
+	 * @return Lines of text
+	 */
+	public List<String> dump() {
+		List<String> lines = new ArrayList<>();
+		this.getGauges()
+			.forEach((name, value) -> lines.add(name + ": " + value));
+
+		this.getQueues()
+			.forEach((name, queue) -> {
+				lines.add(name + " queue: size=" + queue.size());
+				Map<Integer, LatencyHistogram> waitTimes = queue.getWaitTimes();
+				queue.getDepths()
+					.forEach((priority, depth) -> {
+						LatencyHistogram wait = waitTimes.get(priority);
+						lines.add("  priority " + priority + ": depth=" + depth + (wait == null ?
+							"" :
+							" wait " + wait));
+					});
+			});
+
+		this.getRepositories()
+			.values()
+			.forEach(repository -> {
+				lines.add(repository.getName() + String.format(
+					": hits=%d misses=%d ratio=%.2f filtered=%d", repository.getHits(), repository.getMisses(), repository.getHitRatio(), repository.getFiltered()));
+				repository.getOperations()
+					.forEach((operation, metrics) -> lines.add("  " + operation + ": " + metrics));
+			});
+
+		if (!this.statements.isEmpty()) lines.add("Slowest statements by total time:");
+		this.statements.entrySet()
+			.stream()
+			.sorted(Comparator.comparingDouble((Map.Entry<String, OperationMetrics> entry) -> entry.getValue()
+					.getLatency()
+					.getMeanMillis() * entry.getValue()
+					.getCount())
+				.reversed())
+			.limit(DUMPED_STATEMENTS)
+			.forEach(entry -> lines.add("  " + entry.getKey() + ": " + entry.getValue()));
+		return lines;
+	}
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.metrics;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Count, errors and latency of one database operation
+ */
+public class OperationMetrics {
+	private final AtomicLong errors = new AtomicLong();
+	@Getter private final LatencyHistogram latency = new LatencyHistogram();
+
+	/**
+	 * Record finished operation
+	 *
+	 * @param nanos   Duration in nanoseconds
+	 * @param success False when operation threw exception
+	 */
+	public void record(long nanos, boolean success) {
+		this.latency.record(nanos);
+		if (!success) this.errors.incrementAndGet();
+	}
+
+	public long getCount() {
+		return this.latency.getCount();
+	}
+
+	public long getErrors() {
+		return this.errors.get();
+	}
+
+	public void reset() {
+		this.latency.reset();
+		this.errors.set(0L);
+	}
+
+	@Override
+	public String toString() {
+		return this.latency + " errors=" + this.getErrors();
+	}
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.metrics;
+
+import com.enhancedprojects.enhancedspigot.util.TryCatchUtil;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Metrics of one repository
+ * Operations are recorded by name, e.g. load, update or create
+ */
+public class RepositoryMetrics {
+	private static final ThreadLocal<String> CURRENT_REPOSITORY = new ThreadLocal<>();
+
+	@Getter private final String name;
+	private final ConcurrentMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong filtered = new AtomicLong();
+
+	public RepositoryMetrics(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Get name of repository whose timed operation runs on current thread
+	 *
+	 * @return Name of repository or null
+	 */
+	public static String getCurrentRepository() {
+		return CURRENT_REPOSITORY.get();
+	}
+
+	public OperationMetrics getOperation(String operation) {
+		return this.operations.computeIfAbsent(operation, o -> new OperationMetrics());
+	}
+
+	public Map<String, OperationMetrics> getOperations() {
+		return Collections.unmodifiableMap(new TreeMap<>(this.operations));
+	}
+
+	/**
+	 * Wrap call, so its duration is recorded as operation
+	 *
+	 * @param operation Name of operation
+	 * @param call      Call to wrap
+	 * @return Wrapped call
+	 */
+	public <T> TryCatchUtil.ITryCatchWithReturn<T> timed(String operation, TryCatchUtil.ITryCatchWithReturn<T> call) {
+		return () -> {
+			String previous = CURRENT_REPOSITORY.get();
+			CURRENT_REPOSITORY.set(this.name);
+			long start = System.nanoTime();
+			boolean success = false;
+			try {
+				T result = call.run();
+				success = true;
+				return result;
+			} finally {
+				this.getOperation(operation)
+					.record(System.nanoTime() - start, success);
+				CURRENT_REPOSITORY.set(previous);
+			}
+		};
+	}
+
+	/**
+	 * Wrap call without result, so its duration is recorded as operation
+	 *
+	 * @param operation Name of operation
+	 * @param call      Call to wrap
+	 * @return Wrapped call
+	 */
+	public TryCatchUtil.ITryCatch timedRun(String operation, TryCatchUtil.ITryCatch call) {
+		return () -> this.timed(
+				operation, () -> {
+					call.run();
+					return null;
+				}
+			)
+			.run();
+	}
+
+	/**
+	 * Record lookup in cache
+	 *
+	 * @param hit True when value was present in cache
+	 */
+	public void recordLookup(boolean hit) {
+		if (hit) this.hits.incrementAndGet();
+		else this.misses.incrementAndGet();
+	}
+
+	/**
+	 * Record lookup of missing key that was answered by presence filter without query
+	 */
+	public void recordFiltered() {
+		this.filtered.incrementAndGet();
+	}
+
+	public long getFiltered() {
+		return this.filtered.get();
+	}
+
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	/**
+	 * @return Ratio of cache hits from 0 to 1
+	 */
+	public double getHitRatio() {
+		long hits = this.hits.get();
+		long total = hits + this.misses.get();
+		return total == 0 ?
+			0D :
+			hits / (double) total;
+	}
+
+	public void reset() {
+		this.operations.values()
+			.forEach(OperationMetrics::reset);
+		this.hits.set(0L);
+		this.misses.set(0L);
+		this.filtered.set(0L);
+	}
+}
@@ -17,12 +17,81 @@
 package com.enhancedprojects.enhancedspigot.data.repository.entity;
 
 import com.enhancedprojects.enhancedspigot.data.repository.iface.IDataRepository;
+import com.j256.ormlite.dao.ForeignCollection;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
 
 public abstract class AbstractDataEntity<K> {
 	protected IDataRepository<K, ? extends AbstractDataEntity<K>> repository = null;
+	private volatile boolean modified = true;
+	private Object[] columnSnapshot = null;
+	private Map<ForeignCollection<?>, Set<Integer>> foreignSnapshots = null;
 
 	public abstract K getKey();
 
+	/**
+	 * Report that entity was changed and should be written during the next save
+	 * Required only for entities implementing {@link ITrackedDataEntity}
+	 */
+	public void markModified() {
+		this.modified = true;
+	}
+
+	public void markClean() {
+		this.modified = false;
+	}
+
+	/**
+	 * Check if entity should be written during save
+	 *
+	 * @return true if entity is not tracked or was changed since the last save
+	 */
+	public boolean isModified() {
+		return !(this instanceof ITrackedDataEntity) || this.modified;
+	}
+
+	/**
+	 * Check if entity was marked as modified since it was loaded or successfully saved
+	 * Unlike {@link #isModified()}, untracked entities are reported as clean right after save
+	 *
+	 * @return true if the last save failed or entity was marked as modified after it
+	 */
+	public boolean hasUnsavedChanges() {
+		return this.modified;
+	}
+
+	/**
+	 * Column values from the last load or save, used to update only changed columns
+	 *
+	 * @return Column values or null when snapshot was not taken
+	 */
+	public Object[] getColumnSnapshot() {
+		return this.columnSnapshot;
+	}
+
+	public void setColumnSnapshot(Object[] columnSnapshot) {
+		this.columnSnapshot = columnSnapshot;
+	}
+
+	/**
+	 * Keys of children in foreign collection from the last load or save, used to save only changed children
+	 *
+	 * @param foreign Foreign collection of this entity
+	 * @return Keys or null when snapshot was not taken
+	 */
+	public synchronized Set<Integer> getForeignSnapshot(ForeignCollection<?> foreign) {
+		return this.foreignSnapshots == null ?
+			null :
+			this.foreignSnapshots.get(foreign);
+	}
+
+	public synchronized void setForeignSnapshot(ForeignCollection<?> foreign, Set<Integer> keys) {
+		if (this.foreignSnapshots == null) this.foreignSnapshots = new IdentityHashMap<>();
+		this.foreignSnapshots.put(foreign, keys);
+	}
+
 	public void setRepository(IDataRepository<K, ? extends AbstractDataEntity<K>> repository) throws IllegalStateException {
 		if (this.repository != null) throw new IllegalStateException("Repository cannot be set after initialization.");
 		this.repository = repository;
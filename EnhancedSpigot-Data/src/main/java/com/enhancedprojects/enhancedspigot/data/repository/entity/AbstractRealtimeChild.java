@@ -34,13 +34,15 @@ public abstract class AbstractRealtimeChild<K> extends AbstractDataEntity<K> {
 	@SuppressWarnings("unchecked")
 	public <T extends AbstractDataEntity<?>> void markCreated() {
 		this.validateState();
-		RealtimeCacheUtil.createForeign((RealtimeDataRepository<K, ? extends AbstractDataEntity<K>>) this.repository, (T) this, (ForeignCollection<T>) this.sourceCollection);
+		RealtimeCacheUtil.createForeign(
+			(RealtimeDataRepository<K, ? extends AbstractDataEntity<K>>) this.repository, this.parentEntity.getKey(), (T) this, (ForeignCollection<T>) this.sourceCollection);
 	}
 
 	@SuppressWarnings("unchecked")
 	public <T extends AbstractDataEntity<?>> void markDeleted() {
 		this.validateState();
-		RealtimeCacheUtil.removeForeign((RealtimeDataRepository<K, ? extends AbstractDataEntity<K>>) this.repository, (T) this, (ForeignCollection<T>) this.sourceCollection);
+		RealtimeCacheUtil.removeForeign(
+			(RealtimeDataRepository<K, ? extends AbstractDataEntity<K>>) this.repository, this.parentEntity.getKey(), (T) this, (ForeignCollection<T>) this.sourceCollection);
 	}
 
 	private void validateState() {
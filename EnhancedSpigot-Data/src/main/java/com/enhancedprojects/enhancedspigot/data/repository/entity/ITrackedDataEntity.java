@@ -0,0 +1,24 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.enhancedprojects.enhancedspigot.data.repository.entity;
+
+/**
+ * Marks entity as tracked
+ * Tracked entity is saved only when it was marked as modified using {@link AbstractDataEntity#markModified()}
+ * Modifications made by repository modify methods are marked automatically
+ */
+public interface ITrackedDataEntity {
+}
@@ -17,8 +17,10 @@
 package com.enhancedprojects.enhancedspigot.data.repository.iface;
 
 import com.enhancedprojects.enhancedspigot.data.repository.entity.AbstractDataEntity;
+import com.enhancedprojects.enhancedspigot.data.util.DrainReport;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
@@ -31,6 +33,10 @@ public interface IAsyncDataRepository<K, V extends AbstractDataEntity<K>> extend
 
 	CompletableFuture<V> loadAsync(K key);
 
+	CompletableFuture<Map<K, V>> getAllAsync(Collection<K> keys);
+
+	CompletableFuture<Map<K, V>> loadAsyncAll(Collection<K> keys);
+
 	CompletableFuture<Collection<V>> loadAsyncAll();
 
 	CompletableFuture<Collection<V>> loadAsyncAll(boolean ignoreCached);
@@ -67,6 +73,8 @@ public interface IAsyncDataRepository<K, V extends AbstractDataEntity<K>> extend
 
 	CompletableFuture<Boolean> existsAsync(K key);
 
+	DrainReport<K> drainAll(long timeoutMillis); // Save everything in parallel batches and wait up to timeout, used on shutdown instead of DisableLock
+
 	ExecutorService getReadExecutor();
 
 	void setReadExecutor(ExecutorService executorService);
@@ -18,8 +18,10 @@ package com.enhancedprojects.enhancedspigot.data.repository.iface;
 
 import com.enhancedprojects.enhancedspigot.data.repository.entity.AbstractDataEntity;
 import com.enhancedprojects.enhancedspigot.data.storage.IDataStorage;
+import com.enhancedprojects.enhancedspigot.data.util.SaveCycleStats;
 
 import java.util.Collection;
+import java.util.Map;
 import java.util.Set;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
@@ -33,6 +35,10 @@ public interface IDataRepository<K, V extends AbstractDataEntity<K>> {
 
 	V load(K key); // Always loads from the source
 
+	Map<K, V> getAll(Collection<K> keys); // Gets cached values and loads missing ones with a single query
+
+	Map<K, V> loadAll(Collection<K> keys); // Always loads from the source with a single query
+
 	Collection<V> loadAll();
 
 	Collection<V> loadAll(boolean ignoreCached);
@@ -68,4 +74,6 @@ public interface IDataRepository<K, V extends AbstractDataEntity<K>> {
 	void removeAll();
 
 	boolean exists(K key);
+
+	SaveCycleStats getLastSaveCycle(); // Written and skipped values of the last saveAll
 }
\ No newline at end of file
@@ -0,0 +1,23 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.repository.iface;
+
+import com.enhancedprojects.enhancedspigot.data.repository.entity.AbstractDataEntity;
+
+@FunctionalInterface public interface IVersionConflictHandler<K, V extends AbstractDataEntity<K>> {
+	V resolve(V local, V remote); // Called when row was changed by someone else since load. Return value to save, e.g. remote with local changes applied, or null to keep remote
+}
@@ -17,30 +17,50 @@
 package com.enhancedprojects.enhancedspigot.data.repository.impl;
 
 import com.enhancedprojects.enhancedspigot.data.DatabaseController;
+import com.enhancedprojects.enhancedspigot.data.journal.WriteAheadJournal;
 import com.enhancedprojects.enhancedspigot.data.repository.entity.AbstractDataEntity;
 import com.enhancedprojects.enhancedspigot.data.repository.entity.IDataEntityLifecycle;
 import com.enhancedprojects.enhancedspigot.data.repository.entity.IForeignMapping;
 import com.enhancedprojects.enhancedspigot.data.repository.iface.IAsyncDataRepository;
 import com.enhancedprojects.enhancedspigot.data.storage.IDataStorage;
 import com.enhancedprojects.enhancedspigot.data.util.AsyncPriorityMap;
+import com.enhancedprojects.enhancedspigot.data.util.CollectionUtil;
+import com.enhancedprojects.enhancedspigot.data.util.DisableLock;
+import com.enhancedprojects.enhancedspigot.data.util.DrainReport;
 import com.enhancedprojects.enhancedspigot.data.util.PriorityCompletableUtil;
+import com.enhancedprojects.enhancedspigot.data.util.SaveCycleStats;
 import com.enhancedprojects.enhancedspigot.util.TryCatchUtil;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.ForeignCollection;
 import lombok.Getter;
 import lombok.Setter;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
 import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 public class AsyncDataRepository<K, V extends AbstractDataEntity<K>> extends DataRepository<K, V> implements IAsyncDataRepository<K, V> {
+	private static final int DRAIN_BATCH_SIZE = 100;
+
 	@Getter private final AsyncPriorityMap asyncPriorityMap;
 
 	@Getter
@@ -49,6 +69,22 @@ public class AsyncDataRepository<K, V extends AbstractDataEntity<K>> extends Dat
 	@Getter
 	@Setter
 	private ExecutorService writeExecutor;
+	/**
+	 * Maximum number of values saved in one transaction by {@link #saveAsyncAll()}
+	 * Set to 0 to save every value separately
+	 */
+	@Getter
+	@Setter
+	private int saveBatchSize;
+	/**
+	 * Loads of keys that are currently running
+	 * Concurrent getAsync/loadAsync calls for the same key share one of them
+	 */
+	private final ConcurrentMap<K, CompletableFuture<V>> inFlightLoads = new ConcurrentHashMap<>();
+	/**
+	 * Journal of queued writes, null when disabled
+	 */
+	@Getter private final WriteAheadJournal journal;
 
 	/**
 	 * Automated constructor
@@ -65,6 +101,7 @@ public class AsyncDataRepository<K, V extends AbstractDataEntity<K>> extends Dat
 		super(controller, cache, plugin);
 		this.readExecutor = controller.getReadExecutor();
 		this.writeExecutor = controller.getWriteExecutor();
+		this.journal = controller.getJournal();
 		this.asyncPriorityMap = asyncPriorityMap;
 	}
 
@@ -76,17 +113,63 @@ public class AsyncDataRepository<K, V extends AbstractDataEntity<K>> extends Dat
 		super(controller, cache, plugin, keyClass, valueClass);
 		this.readExecutor = controller.getReadExecutor();
 		this.writeExecutor = controller.getWriteExecutor();
+		this.journal = controller.getJournal();
 		this.asyncPriorityMap = asyncPriorityMap;
 	}
 
 	@Override
 	public CompletableFuture<V> getAsync(K key) {
-		return this.supplyAsync(() -> this.get(key), this.asyncPriorityMap.getGetPriority(), System.currentTimeMillis(), this.readExecutor);
+		V cached = this.cache.get(key);
+		if (cached != null) {
+			this.metrics.recordLookup(true);
+			return CompletableFuture.completedFuture(cached);
+		}
+		return this.loadOnce(key, () -> this.get(key), this.asyncPriorityMap.getGetPriority());
 	}
 
 	@Override
 	public CompletableFuture<V> loadAsync(K key) {
-		return this.supplyAsync(() -> this.load(key), this.asyncPriorityMap.getLoadPriority(), System.currentTimeMillis(), this.readExecutor);
+		return this.loadOnce(key, () -> this.load(key), this.asyncPriorityMap.getLoadPriority());
+	}
+
+	/**
+	 * Run load of key or join the one that is already running for it
+	 *
+	 * @param key      Key of value
+	 * @param loader   Load that should be run
+	 * @param priority Priority of the load
+	 * @return Future with loaded value
+	 */
+	protected CompletableFuture<V> loadOnce(K key, Supplier<V> loader, int priority) {
+		if (DisableLock.IS_LOCKED) return this.supplyKeyedAsync(key, loader, priority, System.currentTimeMillis(), this.readExecutor);
+
+		CompletableFuture<V> pending = new CompletableFuture<>();
+		CompletableFuture<V> running = this.inFlightLoads.putIfAbsent(key, pending);
+		if (running != null) return running;
+
+		CompletableFuture<V> job = this.supplyKeyedAsync(key, loader, priority, System.currentTimeMillis(), this.readExecutor);
+		if (job == null) {
+			this.inFlightLoads.remove(key, pending);
+			pending.complete(this.cache.get(key));
+			return pending;
+		}
+
+		job.whenComplete((value, throwable) -> {
+			this.inFlightLoads.remove(key, pending);
+			if (throwable != null) pending.completeExceptionally(throwable);
+			else pending.complete(value);
+		});
+		return pending;
+	}
+
+	@Override
+	public CompletableFuture<Map<K, V>> getAllAsync(Collection<K> keys) {
+		return this.supplyMultiKeyedAsync(keys, () -> this.getAll(keys), this.asyncPriorityMap.getGetPriority(), System.currentTimeMillis(), this.readExecutor);
+	}
+
+	@Override
+	public CompletableFuture<Map<K, V>> loadAsyncAll(Collection<K> keys) {
+		return this.supplyMultiKeyedAsync(keys, () -> this.loadAll(keys), this.asyncPriorityMap.getLoadPriority(), System.currentTimeMillis(), this.readExecutor);
 	}
 
 	@Override
@@ -94,41 +177,54 @@ public class AsyncDataRepository<K, V extends AbstractDataEntity<K>> extends Dat
 		return this.loadAsyncAll(false);
 	}
 
+	/**
+	 * Rows are queried without key lanes, because their keys are not known yet, then every value is cached in the lane of its key
+	 * Streamed load runs as one job without key lanes
+	 */
 	@Override
 	public CompletableFuture<Collection<V>> loadAsyncAll(boolean ignoreCached) {
 		long operationId = System.currentTimeMillis();
-		return this.supplyAsync(() -> TryCatchUtil.tryOrDefault(this.dao::queryForAll, new ArrayList<V>()), this.asyncPriorityMap.getLoadAllPriority(), operationId, this.readExecutor)
+		if (this.streamChunkSize > 0) return this.supplyAsync(() -> this.loadAll(ignoreCached), this.asyncPriorityMap.getLoadAllPriority(), operationId, this.readExecutor);
+
+		Map<ForeignCollection<?>, List<Object>> prefetched = new IdentityHashMap<>();
+		return this.supplyAsync(
+				() -> {
+					List<V> entities = TryCatchUtil.tryOrDefault(this.metrics.timed("queryForAll", this.dao::queryForAll), new ArrayList<V>());
+					if (ignoreCached) entities.removeIf(entity -> this.cache.contains(entity.getKey()));
+					prefetched.putAll(this.prefetchForeign(entities));
+					return entities;
+				}, this.asyncPriorityMap.getLoadAllPriority(), operationId, this.readExecutor
+			)
 			.thenCompose(entities -> CompletableFuture.allOf(entities.stream()
-				.map(entity -> {
-					if (ignoreCached && this.cache.contains(entity.getKey())) return CompletableFuture.completedFuture(null);
-					return this.runAsync(() -> this.loadValueIntoCache(entity.getKey(), entity), this.asyncPriorityMap.getLoadAllPriority(), operationId, this.readExecutor);
-				})
+				.map(entity -> this.runKeyedAsync(
+					entity.getKey(), () -> {
+						this.processValue(entity, prefetched);
+						this.cache.set(entity.getKey(), entity);
+					}, this.asyncPriorityMap.getLoadAllPriority(), operationId, this.readExecutor
+				))
 				.toArray(CompletableFuture[]::new)))
 			.thenApply(v -> this.cache.values());
 	}
 
 	@Override
 	public CompletableFuture<Void> modifyAsync(K key, Consumer<V> action) {
-		return this.runAsync(() -> this.modify(key, action), this.asyncPriorityMap.getModifyPriority(), System.currentTimeMillis());
+		return this.runKeyedAsync(key, () -> this.modify(key, action), this.asyncPriorityMap.getModifyPriority(), System.currentTimeMillis());
 	}
 
 	@Override
 	public CompletableFuture<Void> modifyAsyncMultiple(Set<K> keys, Consumer<V> action) {
-		return this.loopAsyncAll(
-			value -> {
-				if (!keys.contains(value.getKey())) return;
-				action.accept(value);
-				if (!this.cache.contains(value.getKey())) this.saveValue(value);
-			}, true
-		);
+		return this.runMultiKeyedAsync(keys, () -> this.modifyMultiple(keys, action), this.asyncPriorityMap.getModifyPriority(), System.currentTimeMillis());
 	}
 
 	@Override
 	public CompletableFuture<Void> modifyAsyncAll(Consumer<V> action) {
+		if (this.streamChunkSize > 0) return this.runAsync(() -> this.modifyAll(action), this.asyncPriorityMap.getModifyAllPriority(), System.currentTimeMillis());
+
 		return this.loopAsyncAll(
 			value -> {
 				action.accept(value);
-				if (!this.cache.contains(value.getKey())) this.saveValue(value);
+				value.markModified();
+				this.saveIfNotCached(value);
 			}, true
 		);
 	}
@@ -138,12 +234,22 @@ public class AsyncDataRepository<K, V extends AbstractDataEntity<K>> extends Dat
 		return this.loopAsyncAll(action, false);
 	}
 
+	/**
+	 * Action is run for every value in the lane of its key
+	 * Streamed loop runs as one job without key lanes
+	 */
 	public CompletableFuture<Void> loopAsyncAll(Consumer<V> action, boolean asModify) {
 		long operationId = System.currentTimeMillis();
+		if (this.streamChunkSize > 0) return this.runAsync(
+			() -> this.loopAll(action), this.asyncPriorityMap.getModifyAllPriority(), operationId, asModify ?
+				this.writeExecutor :
+				this.readExecutor
+		);
+
 		return this.loopAsyncAll()
 			.thenCompose(entities -> CompletableFuture.allOf(entities.stream()
-				.map(entity -> this.runAsync(
-					() -> action.accept(entity), this.asyncPriorityMap.getModifyAllPriority(), operationId, asModify ?
+				.map(entity -> this.runKeyedAsync(
+					entity.getKey(), () -> action.accept(entity), this.asyncPriorityMap.getModifyAllPriority(), operationId, asModify ?
 						this.writeExecutor :
 						this.readExecutor
 				))
@@ -155,17 +261,22 @@ public class AsyncDataRepository<K, V extends AbstractDataEntity<K>> extends Dat
 		long operationId = System.currentTimeMillis();
 		Set<V> values = new HashSet<>(this.cache.values());
 
-		return this.supplyAsync(() -> TryCatchUtil.tryOrDefault(this.dao::queryForAll, new ArrayList<V>()), this.asyncPriorityMap.getModifyAllPriority(), operationId, this.readExecutor)
+		Map<ForeignCollection<?>, List<Object>> prefetched = new IdentityHashMap<>();
+		return this.supplyAsync(
+				() -> {
+					List<V> entities = TryCatchUtil.tryOrDefault(this.metrics.timed("queryForAll", this.dao::queryForAll), new ArrayList<V>());
+					entities.removeIf(entity -> this.cache.isLoaded(entity.getKey()));
+					prefetched.putAll(this.prefetchForeign(entities));
+					return entities;
+				}, this.asyncPriorityMap.getModifyAllPriority(), operationId, this.readExecutor
+			)
 			.thenCompose(entities -> CompletableFuture.allOf(entities.stream()
-				.map(entity -> {
-					if (this.cache.contains(entity.getKey())) return CompletableFuture.completedFuture(null);
-					return this.runAsync(
-						() -> {
-							this.processValue(entity);
-							values.add(entity);
-						}, this.asyncPriorityMap.getLoadAllPriority(), operationId
-					);
-				})
+				.map(entity -> this.runAsync(
+					() -> {
+						this.processValue(entity, prefetched);
+						values.add(entity);
+					}, this.asyncPriorityMap.getLoadAllPriority(), operationId
+				))
 				.toArray(CompletableFuture[]::new)))
 			.thenApply(v -> values);
 	}
@@ -191,35 +302,126 @@ public class AsyncDataRepository<K, V extends AbstractDataEntity<K>> extends Dat
 
 	@Override
 	public CompletableFuture<Void> saveAsyncAll() {
+		if (this.saveBatchSize > 0) return CompletableFuture.allOf(this.saveAsyncAllBatched(this.saveBatchSize)
+			.stream()
+			.toArray(CompletableFuture[]::new));
+
 		long operationId = System.currentTimeMillis();
+		SaveCycleStats stats = new SaveCycleStats();
 		return CompletableFuture.allOf(this.cache.values()
+				.stream()
+				.map(value -> {
+					stats.record(value.isModified());
+					return this.saveToDbAsync(value, this.asyncPriorityMap.getSaveAllPriority(), operationId);
+				})
+				.toArray(CompletableFuture[]::new))
+			.thenRun(() -> this.lastSaveCycle = stats);
+	}
+
+	/**
+	 * Save all cached values in batches
+	 * Every batch is saved by one job inside one database transaction
+	 *
+	 * @param batchSize Maximum number of values in one batch
+	 * @return Futures of batches
+	 */
+	public List<CompletableFuture<Void>> saveAsyncAllBatched(int batchSize) {
+		long operationId = System.currentTimeMillis();
+		SaveCycleStats stats = new SaveCycleStats();
+		this.lastSaveCycle = stats;
+		return CollectionUtil.partition(this.cache.values(), batchSize)
 			.stream()
-			.map(value -> this.saveToDbAsync(value, this.asyncPriorityMap.getSaveAllPriority(), operationId))
-			.toArray(CompletableFuture[]::new));
+			.map(batch -> {
+				List<Long> journalSequences = this.journalBatch(batch);
+				CompletableFuture<Void> future = this.runMultiKeyedAsync(
+					this.getKeys(batch), () -> {
+						List<V> values = batch.stream()
+							.filter(value -> this.cache.isLoaded(value.getKey()))
+							.collect(Collectors.toList());
+						values.forEach(value -> stats.record(value.isModified()));
+						if (this.saveBatch(values)) journalSequences.forEach(this::journalAcknowledge);
+					}, this.asyncPriorityMap.getSaveAllPriority(), operationId
+				);
+				return future == null ?
+					CompletableFuture.<Void>completedFuture(null) :
+					future;
+			})
+			.collect(Collectors.toList());
 	}
 
 	protected CompletableFuture<Void> saveToDbAsync(V value, int priority, long operationId) {
-		return this.runAsync(
-				() -> {
-					if (!this.cache.contains(value.getKey())) return;
+		if (!value.isModified()) return CompletableFuture.completedFuture(null);
+		long journalSequence = this.journalSave(this.dao, value);
+		return this.runKeyedAsync(
+				value.getKey(), () -> {
+					if (!this.cache.isLoaded(value.getKey())) return;
 					if (value instanceof IDataEntityLifecycle) ((IDataEntityLifecycle) value).beforeSave(this.plugin);
 				}, priority, operationId
 			)
 			.thenCompose(v -> {
-				if (this.cache.contains(value.getKey()) && value instanceof IForeignMapping) return this.javaToDbAsync((IForeignMapping) value, priority, operationId);
-				return CompletableFuture.completedFuture(null);
+				if (this.cache.isLoaded(value.getKey()) && value instanceof IForeignMapping) return this.saveForeignAsync(value.getKey(), (IForeignMapping) value, priority, operationId);
+				return CompletableFuture.completedFuture(true);
 			})
-			.thenCompose(v -> this.runAsync(
-				() -> {
-					if (!this.cache.contains(value.getKey())) return;
-					TryCatchUtil.tryRun(() -> this.dao.update(value));
+			.thenCompose(childrenSaved -> this.runKeyedAsync(
+				value.getKey(), () -> {
+					if (!this.cache.isLoaded(value.getKey())) {
+						this.journalAcknowledge(journalSequence);
+						return;
+					}
+					if (this.updateInDb(value)) this.journalAcknowledge(journalSequence);
+					// Update marks entity as clean, so it is marked again to retry failed children during the next save
+					if (!childrenSaved) value.markModified();
 				}, priority, operationId
 			));
 	}
 
+	/**
+	 * Append save of entity to journal before its job is queued
+	 * Foreign collections are not journaled
+	 *
+	 * @return Sequence to acknowledge after commit, 0 when journal is disabled or append failed
+	 */
+	protected <T> long journalSave(Dao<T, ?> dao, T value) {
+		if (this.journal == null || DisableLock.IS_LOCKED) return 0L;
+		return TryCatchUtil.tryOrDefault(() -> this.journal.appendSave(dao, value), 0L);
+	}
+
+	/**
+	 * Append delete of entity to journal before its job is queued
+	 *
+	 * @return Sequence to acknowledge after commit, 0 when journal is disabled or append failed
+	 */
+	protected <T> long journalDelete(Dao<T, ?> dao, T value) {
+		if (this.journal == null || DisableLock.IS_LOCKED) return 0L;
+		return TryCatchUtil.tryOrDefault(() -> this.journal.appendDelete(dao, value), 0L);
+	}
+
+	/**
+	 * Append saves of modified values of batch to journal before its job is queued
+	 *
+	 * @return Sequences to acknowledge after batch commits
+	 */
+	protected List<Long> journalBatch(Collection<V> batch) {
+		if (this.journal == null || DisableLock.IS_LOCKED) return Collections.emptyList();
+		return batch.stream()
+			.filter(AbstractDataEntity::isModified)
+			.map(value -> this.journalSave(this.dao, value))
+			.filter(sequence -> sequence > 0L)
+			.collect(Collectors.toList());
+	}
+
+	protected void journalAcknowledge(long sequence) {
+		if (this.journal != null && sequence > 0L) this.journal.acknowledge(sequence);
+	}
+
+	@Override
+	protected CompletableFuture<Void> saveEvicted(K key, V value) {
+		return this.runKeyedAsync(key, () -> this.saveToDb(value), this.asyncPriorityMap.getSavePriority(), System.currentTimeMillis());
+	}
+
 	@Override
 	public CompletableFuture<V> createAsync(K key, V value) {
-		return this.supplyAsync(() -> this.create(key, value), this.asyncPriorityMap.getCreatePriority(), System.currentTimeMillis());
+		return this.supplyKeyedAsync(key, () -> this.create(key, value), this.asyncPriorityMap.getCreatePriority(), System.currentTimeMillis());
 	}
 
 	@Override
@@ -238,7 +440,7 @@ public class AsyncDataRepository<K, V extends AbstractDataEntity<K>> extends Dat
 
 	@Override
 	public CompletableFuture<Void> removeAsync(K key) {
-		return this.runAsync(() -> this.remove(key), this.asyncPriorityMap.getRemovePriority(), System.currentTimeMillis());
+		return this.runKeyedAsync(key, () -> this.remove(key), this.asyncPriorityMap.getRemovePriority(), System.currentTimeMillis());
 	}
 
 	@Override
@@ -247,7 +449,7 @@ public class AsyncDataRepository<K, V extends AbstractDataEntity<K>> extends Dat
 		return CompletableFuture.allOf(this.cache.entrySet()
 			.stream()
 			.map(entry -> {
-				if (predicate.test(entry.getKey(), entry.getValue())) return this.runAsync(() -> this.remove(entry.getKey()), this.asyncPriorityMap.getRemovePriority(), operationId);
+				if (predicate.test(entry.getKey(), entry.getValue())) return this.runKeyedAsync(entry.getKey(), () -> this.remove(entry.getKey()), this.asyncPriorityMap.getRemovePriority(), operationId);
 				return CompletableFuture.completedFuture(null);
 			})
 			.toArray(CompletableFuture[]::new));
@@ -260,41 +462,117 @@ public class AsyncDataRepository<K, V extends AbstractDataEntity<K>> extends Dat
 
 	@Override
 	public CompletableFuture<Boolean> existsAsync(K key) {
-		return this.supplyAsync(() -> this.exists(key), this.asyncPriorityMap.getExistsPriority(), System.currentTimeMillis());
+		return this.supplyKeyedAsync(key, () -> this.exists(key), this.asyncPriorityMap.getExistsPriority(), System.currentTimeMillis());
+	}
+
+	/**
+	 * Enable presence filter without blocking caller, see {@link #enablePresenceFilter(double, long)}
+	 */
+	public CompletableFuture<Void> enablePresenceFilterAsync(double falsePositiveRate, long negativeTtlMillis) {
+		return this.runAsync(() -> this.enablePresenceFilter(falsePositiveRate, negativeTtlMillis), this.asyncPriorityMap.getLoadAllPriority(), System.currentTimeMillis(), this.readExecutor);
+	}
+
+	/**
+	 * Save all modified values in parallel batches and wait until they are saved or timeout passes
+	 * Executors have to be running, so it should be called before DatabaseController is closed and without {@link DisableLock}
+	 *
+	 * @param timeoutMillis Maximum time to wait
+	 * @return Report with keys that were not saved
+	 */
+	@Override
+	public DrainReport<K> drainAll(long timeoutMillis) {
+		long start = System.currentTimeMillis();
+		List<CompletableFuture<Void>> jobs = this.submitDrainJobs(System.currentTimeMillis());
+
+		boolean timedOut = false;
+		try {
+			CompletableFuture.allOf(jobs.stream()
+					.toArray(CompletableFuture[]::new))
+				.get(timeoutMillis, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			timedOut = true;
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				.interrupt();
+			timedOut = true;
+		} catch (ExecutionException e) {
+			this.plugin.getLogger()
+				.log(Level.WARNING, "Some values were not saved while draining " + this.metrics.getName(), e.getCause());
+		}
+		return new DrainReport<>(this.metrics.getName(), jobs.size(), System.currentTimeMillis() - start, timedOut, this.getUnsavedKeys());
+	}
+
+	/**
+	 * Submit jobs that save everything that is not saved yet
+	 *
+	 * @param operationId Operation id of jobs
+	 * @return Futures of submitted jobs
+	 */
+	protected List<CompletableFuture<Void>> submitDrainJobs(long operationId) {
+		List<V> modified = this.cache.values()
+			.stream()
+			.filter(AbstractDataEntity::isModified)
+			.collect(Collectors.toList());
+		int batchSize = this.saveBatchSize > 0 ?
+			this.saveBatchSize :
+			DRAIN_BATCH_SIZE;
+
+		return CollectionUtil.partition(modified, batchSize)
+			.stream()
+			.map(batch -> {
+				List<Long> journalSequences = this.journalBatch(batch);
+				CompletableFuture<Void> future = this.runMultiKeyedAsync(
+					this.getKeys(batch), () -> {
+						if (this.saveBatch(batch)) journalSequences.forEach(this::journalAcknowledge);
+					}, this.asyncPriorityMap.getSaveAllPriority(), operationId
+				);
+				return future == null ?
+					CompletableFuture.<Void>completedFuture(null) :
+					future;
+			})
+			.collect(Collectors.toList());
+	}
+
+	/**
+	 * Get keys of values that have changes not saved in database
+	 */
+	protected Set<K> getUnsavedKeys() {
+		// Untracked values are always reported as modified, so only failed or later marked changes count
+		return this.cache.values()
+			.stream()
+			.filter(AbstractDataEntity::hasUnsavedChanges)
+			.map(AbstractDataEntity::getKey)
+			.collect(Collectors.toCollection(HashSet::new));
 	}
 
+	@SuppressWarnings("unchecked")
 	public CompletableFuture<Void> javaToDbAsync(IForeignMapping entity, int priority, long operationId) {
-		return CompletableFuture.allOf(Stream.concat(
+		K key = entity instanceof AbstractDataEntity<?> ?
+			((AbstractDataEntity<K>) entity).getKey() :
+			null;
+		return this.saveForeignAsync(key, entity, priority, operationId)
+			.thenApply(saved -> null);
+	}
+
+	/**
+	 * Save foreign collections and mappers of entity, each in its own job in the lane of entity key
+	 *
+	 * @return Future completed with false when some children failed to save
+	 */
+	protected CompletableFuture<Boolean> saveForeignAsync(K key, IForeignMapping entity, int priority, long operationId) {
+		List<CompletableFuture<Boolean>> jobs = Stream.concat(
 				entity.getForeignMapping()
 					.entrySet()
 					.stream()
-					.map((entry) -> this.runAsync(
-						() -> {
-							entry.getKey()
-								.removeIf(o -> !entry.getValue()
-									.contains(o));
-							entry.getValue()
-								.forEach(obj -> {
-									if (obj.getKey() != null) updateForeign(entry.getKey(), obj);
-									else addToForeign(entry.getKey(), obj);
-								});
-						}, priority, operationId
-					)), entity.getForeignMappers()
+					.map((entry) -> this.supplyKeyedAsync(key, () -> this.syncForeign(entity, entry.getKey(), entry.getValue()), priority, operationId)), entity.getForeignMappers()
 					.stream()
-					.map(mapper -> this.runAsync(
-						() -> {
-							mapper.getForeign()
-								.removeIf(o -> !mapper.getCache()
-									.containsKey(this.extractKeyFromMapper(mapper, o)));
-							mapper.getCache()
-								.forEach((key, obj) -> {
-									if (obj.getKey() != null) updateForeign(mapper.getForeign(), obj);
-									else addToForeign(mapper.getForeign(), obj);
-								});
-						}, priority, operationId
-					))
+					.map(mapper -> this.supplyKeyedAsync(key, () -> this.syncMapper(entity, mapper), priority, operationId))
 			)
-			.toArray(CompletableFuture[]::new));
+			.collect(Collectors.toList());
+		return CompletableFuture.allOf(jobs.stream()
+				.toArray(CompletableFuture[]::new))
+			.thenApply(v -> jobs.stream()
+				.allMatch(CompletableFuture::join));
 	}
 
 	public <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, int priority, long operationId) {
@@ -312,4 +590,50 @@ public class AsyncDataRepository<K, V extends AbstractDataEntity<K>> extends Dat
 	public CompletableFuture<Void> runAsync(Runnable runnable, int priority, long operationId, ExecutorService executor) {
 		return PriorityCompletableUtil.runAsync(runnable, executor, priority, operationId);
 	}
+
+	/**
+	 * Supply async in order with other keyed jobs of the same key
+	 */
+	public <T> CompletableFuture<T> supplyKeyedAsync(K key, Supplier<T> supplier, int priority, long operationId) {
+		return this.supplyKeyedAsync(key, supplier, priority, operationId, this.writeExecutor);
+	}
+
+	public <T> CompletableFuture<T> supplyKeyedAsync(K key, Supplier<T> supplier, int priority, long operationId, ExecutorService executor) {
+		return PriorityCompletableUtil.supplyAsync(supplier, executor, priority, operationId, key);
+	}
+
+	/**
+	 * Run async in order with other keyed jobs of the same key
+	 */
+	public CompletableFuture<Void> runKeyedAsync(K key, Runnable runnable, int priority, long operationId) {
+		return this.runKeyedAsync(key, runnable, priority, operationId, this.writeExecutor);
+	}
+
+	public CompletableFuture<Void> runKeyedAsync(K key, Runnable runnable, int priority, long operationId, ExecutorService executor) {
+		return PriorityCompletableUtil.runAsync(runnable, executor, priority, operationId, key);
+	}
+
+	/**
+	 * Supply async after keyed jobs of all keys, keyed jobs submitted later wait until it completes
+	 */
+	public <T> CompletableFuture<T> supplyMultiKeyedAsync(Collection<K> keys, Supplier<T> supplier, int priority, long operationId, ExecutorService executor) {
+		return PriorityCompletableUtil.supplyAsyncForKeys(supplier, executor, priority, operationId, keys);
+	}
+
+	/**
+	 * Run async after keyed jobs of all keys, keyed jobs submitted later wait until it completes
+	 */
+	public CompletableFuture<Void> runMultiKeyedAsync(Collection<K> keys, Runnable runnable, int priority, long operationId) {
+		return this.runMultiKeyedAsync(keys, runnable, priority, operationId, this.writeExecutor);
+	}
+
+	public CompletableFuture<Void> runMultiKeyedAsync(Collection<K> keys, Runnable runnable, int priority, long operationId, ExecutorService executor) {
+		return PriorityCompletableUtil.runAsyncForKeys(runnable, executor, priority, operationId, keys);
+	}
+
+	private List<K> getKeys(Collection<V> values) {
+		return values.stream()
+			.map(AbstractDataEntity::getKey)
+			.collect(Collectors.toList());
+	}
 }
@@ -17,6 +17,7 @@
 package com.enhancedprojects.enhancedspigot.data.repository.impl;
 
 import com.enhancedprojects.enhancedspigot.data.DatabaseController;
+import com.enhancedprojects.enhancedspigot.data.metrics.RepositoryMetrics;
 import com.enhancedprojects.enhancedspigot.data.repository.entity.AbstractDataEntity;
 import com.enhancedprojects.enhancedspigot.data.repository.entity.AbstractRealtimeChild;
 import com.enhancedprojects.enhancedspigot.data.repository.entity.ForeignMapper;
@@ -24,27 +25,93 @@ import com.enhancedprojects.enhancedspigot.data.repository.entity.IDataEntityLif
 import com.enhancedprojects.enhancedspigot.data.repository.entity.IForeignMapping;
 import com.enhancedprojects.enhancedspigot.data.repository.iface.IDataRepository;
 import com.enhancedprojects.enhancedspigot.data.repository.iface.IForeignMappingHandler;
+import com.enhancedprojects.enhancedspigot.data.repository.iface.IVersionConflictHandler;
 import com.enhancedprojects.enhancedspigot.data.storage.IDataStorage;
+import com.enhancedprojects.enhancedspigot.data.storage.IEvictingDataStorage;
+import com.enhancedprojects.enhancedspigot.data.sync.ChangeType;
+import com.enhancedprojects.enhancedspigot.data.sync.InvalidationBus;
+import com.enhancedprojects.enhancedspigot.data.sync.InvalidationMessage;
+import com.enhancedprojects.enhancedspigot.data.util.CollectionUtil;
+import com.enhancedprojects.enhancedspigot.data.util.EntityColumnUtil;
+import com.enhancedprojects.enhancedspigot.data.util.KeyPresenceFilter;
+import com.enhancedprojects.enhancedspigot.data.util.SaveCycleStats;
 import com.enhancedprojects.enhancedspigot.util.TryCatchUtil;
+import com.j256.ormlite.dao.CloseableIterator;
 import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.EagerForeignCollection;
 import com.j256.ormlite.dao.ForeignCollection;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.misc.TransactionManager;
+import com.j256.ormlite.stmt.PreparedQuery;
+import com.j256.ormlite.stmt.SelectArg;
+import com.j256.ormlite.stmt.SelectIterator;
+import com.j256.ormlite.stmt.StatementBuilder;
+import com.j256.ormlite.stmt.UpdateBuilder;
+import com.j256.ormlite.stmt.Where;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.support.DatabaseConnection;
+import com.j256.ormlite.table.TableInfo;
 import lombok.Getter;
+import lombok.Setter;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
 
 public class DataRepository<K, V extends AbstractDataEntity<K>> implements IForeignMappingHandler, IDataRepository<K, V> {
+	protected static final int KEYS_PER_QUERY = 500;
+	/**
+	 * Changes made inside running batch, published after the batch commits
+	 */
+	private static final ThreadLocal<List<Runnable>> DEFERRED_PUBLISHES = new ThreadLocal<>();
 
 	@Getter protected final Dao<V, K> dao;
 	protected final IDataStorage<K, V> cache;
 	protected final JavaPlugin plugin;
+	@Getter protected final RepositoryMetrics metrics;
+	@Getter protected volatile SaveCycleStats lastSaveCycle = new SaveCycleStats();
+	/**
+	 * Update only columns that changed since the value was loaded or saved
+	 */
+	@Getter @Setter protected boolean partialUpdates;
+	/**
+	 * Number of rows processed at once when iterating the whole table
+	 * Set to 0 to query the whole table before processing
+	 */
+	@Getter @Setter protected int streamChunkSize;
+	/**
+	 * Filter that answers lookups of missing keys without query, null when disabled
+	 */
+	@Getter @Setter protected KeyPresenceFilter<K> presenceFilter;
+	/**
+	 * Bus of changes shared with other servers, null when disabled
+	 */
+	@Getter protected InvalidationBus invalidationBus;
+	/**
+	 * Called when versioned entity was changed by someone else since it was loaded
+	 * Entity is versioned when it has field annotated with {@code @DatabaseField(version = true)}
+	 * When not set, remote value replaces the cached one
+	 */
+	@Getter @Setter protected IVersionConflictHandler<K, V> conflictHandler;
+	@Getter @Setter protected int maxConflictRetries = 3;
 
 	/**
 	 * Automated constructor
@@ -63,12 +130,113 @@ public class DataRepository<K, V extends AbstractDataEntity<K>> implements IFore
 		Class<V> valueClass = (Class<V>) typeArgs[1];
 
 		this.dao = controller.getDao(valueClass, keyClass);
+		this.metrics = controller.getMetrics()
+			.getRepository(valueClass.getSimpleName());
+		this.registerEvictionListener();
+		this.registerInvalidationListener(controller);
 	}
 
 	public DataRepository(DatabaseController controller, IDataStorage<K, V> cache, JavaPlugin plugin, Class<K> keyClass, Class<V> valueClass) {
 		this.cache = cache;
 		this.dao = controller.getDao(valueClass, keyClass);
 		this.plugin = plugin;
+		this.metrics = controller.getMetrics()
+			.getRepository(valueClass.getSimpleName());
+		this.registerEvictionListener();
+		this.registerInvalidationListener(controller);
+	}
+
+	private void registerInvalidationListener(DatabaseController controller) {
+		this.invalidationBus = controller.getInvalidationBus();
+		if (this.invalidationBus == null || this.dao == null) return;
+		this.invalidationBus.register(this.dao.getTableName(), this::applyRemoteChange);
+	}
+
+	/**
+	 * Apply change committed by another server
+	 * Cached value is dropped, so it is loaded again on next access. Values with unsaved changes are kept
+	 *
+	 * @param message Received change
+	 */
+	protected void applyRemoteChange(InvalidationMessage message) {
+		if (message.getType() == ChangeType.CLEAR) {
+			this.cache.invalidateAll();
+			if (this.presenceFilter != null) this.presenceFilter.clear();
+			return;
+		}
+
+		K key = this.parseKey(message.getKey());
+		if (key == null) return;
+		if (message.getType() == ChangeType.DELETE) {
+			this.cache.invalidate(key);
+			this.markMissing(key);
+			return;
+		}
+
+		this.markPresent(key);
+		V cached = this.cache.get(key);
+		if (cached != null && !cached.hasUnsavedChanges()) this.cache.invalidate(key);
+	}
+
+	/**
+	 * Publish committed change to other servers
+	 * Changes made inside {@link #saveBatch(Collection)} are published after the batch commits
+	 *
+	 * @param key  Key of changed value, null when type is {@link ChangeType#CLEAR}
+	 * @param type Type of change
+	 */
+	protected void publishChange(K key, ChangeType type) {
+		InvalidationBus bus = this.invalidationBus;
+		if (bus == null) return;
+		String table = this.dao.getTableName();
+		String serializedKey = key == null ?
+			null :
+			String.valueOf(key);
+
+		Runnable publish = () -> bus.publish(table, serializedKey, type);
+		List<Runnable> deferred = DEFERRED_PUBLISHES.get();
+		if (deferred != null) deferred.add(publish);
+		else publish.run();
+	}
+
+	@SuppressWarnings("unchecked")
+	protected K parseKey(String key) {
+		TableInfo<V, K> tableInfo = EntityColumnUtil.getTableInfo(this.dao);
+		if (key == null || tableInfo == null || tableInfo.getIdField() == null) return null;
+		return TryCatchUtil.tryAndReturn(() -> (K) tableInfo.getIdField()
+			.convertStringToJavaField(key, 0));
+	}
+
+	@SuppressWarnings("unchecked")
+	private void registerEvictionListener() {
+		if (!(this.cache instanceof IEvictingDataStorage)) return;
+		IEvictingDataStorage<K, V> storage = (IEvictingDataStorage<K, V>) this.cache;
+		storage.setEvictionListener(this::onEviction);
+		storage.setEvictionSaver(this::saveEvicted);
+		storage.setRestoreListener((key, value) -> this.processValue(value));
+	}
+
+	/**
+	 * Called when storage drops value because of its limits
+	 * Saves value so changes are not lost
+	 *
+	 * @param key   Key of dropped value
+	 * @param value Dropped value
+	 */
+	protected void onEviction(K key, V value) {
+		this.saveEvicted(key, value);
+	}
+
+	/**
+	 * Save value dropped by storage
+	 *
+	 * @param key   Key of dropped value
+	 * @param value Dropped value
+	 * @return Future completed after save finished
+	 */
+	protected CompletableFuture<Void> saveEvicted(K key, V value) {
+		this.saveToDb(value);
+		return CompletableFuture.completedFuture(null);
 	}
 
 	@Override
@@ -78,9 +246,11 @@ public class DataRepository<K, V extends AbstractDataEntity<K>> implements IFore
 
 	@Override
 	public V get(K key) {
-		return this.cache.contains(key) ?
-			this.cache.get(key) :
-			this.load(key);
+		V value = this.cache.get(key);
+		this.metrics.recordLookup(value != null);
+		return value == null ?
+			this.load(key) :
+			value;
 	}
 
 	@Override
@@ -91,8 +261,11 @@ public class DataRepository<K, V extends AbstractDataEntity<K>> implements IFore
 	@Override
 	public void remove(K key) {
 		TryCatchUtil.tryRun(() -> {
-			this.dao.deleteById(key);
+			this.metrics.timed("delete", () -> this.dao.deleteById(key))
+				.run();
 			this.cache.invalidate(key);
+			this.markMissing(key);
+			this.publishChange(key, ChangeType.DELETE);
 		});
 	}
 
@@ -107,18 +280,105 @@ public class DataRepository<K, V extends AbstractDataEntity<K>> implements IFore
 	@Override
 	public void removeAll() {
 		this.cache.invalidateAll();
-		TryCatchUtil.tryRun(() -> this.dao.deleteBuilder()
-			.delete());
+		// Cleared before delete, so keys created right after delete are not cleared
+		if (this.presenceFilter != null) this.presenceFilter.clear();
+		TryCatchUtil.tryRun(this.metrics.timedRun(
+			"deleteAll", () -> this.dao.deleteBuilder()
+				.delete()
+		));
+		this.publishChange(null, ChangeType.CLEAR);
+	}
+
+	/**
+	 * Enable {@link #presenceFilter} and fill it with keys of all rows
+	 * Keys are streamed from database, so it can take a while on large tables
+	 * Caller is blocked until scan ends, so it must not be called on main thread, use {@link AsyncDataRepository#enablePresenceFilterAsync(double, long)} there
+	 *
+	 * @param falsePositiveRate Wanted rate of missing keys that still need query
+	 * @param negativeTtlMillis Milliseconds for which missing key is remembered
+	 */
+	public void enablePresenceFilter(double falsePositiveRate, long negativeTtlMillis) {
+		long count = TryCatchUtil.tryOrDefault(this.metrics.timed("countOf", this.dao::countOf), 0L);
+		KeyPresenceFilter<K> filter = new KeyPresenceFilter<>(count * 2, falsePositiveRate, negativeTtlMillis);
+		// Set before scan, so keys created during scan are added too
+		this.presenceFilter = filter;
+
+		String idColumn = EntityColumnUtil.getIdColumnName(this.dao);
+		if (idColumn == null) return;
+		boolean scanned = TryCatchUtil.tryOrDefault(
+			this.metrics.timed(
+				"scanKeys", () -> {
+					CloseableIterator<V> iterator = this.dao.queryBuilder()
+						.selectColumns(idColumn)
+						.iterator();
+					try {
+						while (iterator.hasNext()) {
+							filter.add(iterator.next()
+								.getKey());
+						}
+					} finally {
+						iterator.closeQuietly();
+					}
+					return true;
+				}
+			), false
+		);
+		// Without complete scan, only negative cache is used
+		if (scanned) filter.setReady();
+	}
+
+	protected boolean mightExist(K key) {
+		if (this.presenceFilter == null || this.presenceFilter.mightContain(key)) return true;
+		this.metrics.recordFiltered();
+		return false;
+	}
+
+	protected void markPresent(K key) {
+		if (this.presenceFilter != null && key != null) this.presenceFilter.add(key);
+	}
+
+	protected void markMissing(K key) {
+		if (this.presenceFilter != null && key != null) this.presenceFilter.markMissing(key);
 	}
 
 	@Override
 	public V load(K key) {
-		V value = TryCatchUtil.tryAndReturn(() -> this.dao.queryForId(key));
+		if (!this.mightExist(key)) return null;
+		V value = TryCatchUtil.tryAndReturn(this.metrics.timed(
+			"queryForId", () -> {
+				V found = this.dao.queryForId(key);
+				if (found == null) this.markMissing(key);
+				return found;
+			}
+		));
 		if (value == null) return null;
 		this.loadValueIntoCache(key, value);
 		return value;
 	}
 
+	@Override
+	public Map<K, V> getAll(Collection<K> keys) {
+		Map<K, V> result = new LinkedHashMap<>();
+		List<K> notCached = new ArrayList<>();
+		keys.forEach(key -> {
+			V value = this.cache.get(key);
+			this.metrics.recordLookup(value != null);
+			if (value == null) notCached.add(key);
+			else result.put(key, value);
+		});
+		result.putAll(this.loadAll(notCached));
+		return result;
+	}
+
+	@Override
+	public Map<K, V> loadAll(Collection<K> keys) {
+		Map<K, V> result = new LinkedHashMap<>();
+		List<V> values = this.queryByKeys(keys);
+		this.loadValuesIntoCache(values);
+		values.forEach(value -> result.put(value.getKey(), value));
+		return result;
+	}
+
 	@Override
 	public Collection<V> loadAll() {
 		return this.loadAll(false);
@@ -126,21 +386,48 @@ public class DataRepository<K, V extends AbstractDataEntity<K>> implements IFore
 
 	@Override
 	public Collection<V> loadAll(boolean ignoreCached) {
-		TryCatchUtil.tryOrDefault(this.dao::queryForAll, new ArrayList<V>())
+		if (this.streamChunkSize > 0) {
+			this.streamAll(chunk -> this.loadValuesIntoCache(chunk.stream()
+				.filter(entity -> !ignoreCached || !this.cache.contains(entity.getKey()))
+				.collect(Collectors.toList())));
+			return this.cache.values();
+		}
+
+		this.loadValuesIntoCache(TryCatchUtil.tryOrDefault(this.metrics.timed("queryForAll", this.dao::queryForAll), new ArrayList<V>())
 			.stream()
 			.filter(entity -> {
 				return !ignoreCached || !this.cache.contains(entity.getKey());
 			})
-			.forEach(value -> {
-				this.loadValueIntoCache(value.getKey(), value);
-			});
+			.collect(Collectors.toList()));
 		return this.cache.values();
 	}
 
 	protected void processValue(V value) {
+		this.processValue(value, Collections.emptyMap());
+	}
+
+	/**
+	 * Process value using children fetched by {@link #prefetchForeign(Collection)}
+	 *
+	 * @param value      Value to process
+	 * @param prefetched Children of foreign collections, collections without entry are loaded lazily
+	 */
+	protected void processValue(V value, Map<ForeignCollection<?>, List<Object>> prefetched) {
 		TryCatchUtil.tryRun(() -> value.setRepository(this));
-		if (value instanceof IForeignMapping) this.dbToJava((IForeignMapping) value);
+		if (this.partialUpdates) this.takeColumnSnapshot(value);
+		if (value instanceof IForeignMapping) this.dbToJava((IForeignMapping) value, prefetched);
 		if (value instanceof IDataEntityLifecycle) ((IDataEntityLifecycle) value).afterLoad(this.plugin);
+		value.markClean();
+	}
+
+	/**
+	 * Process multiple values, loading their foreign collections with one query per collection field
+	 *
+	 * @param values Values to process
+	 */
+	protected void processValues(Collection<V> values) {
+		Map<ForeignCollection<?>, List<Object>> prefetched = this.prefetchForeign(values);
+		values.forEach(value -> this.processValue(value, prefetched));
 	}
 
 	protected void loadValueIntoCache(K key, V value) {
@@ -148,12 +435,83 @@ public class DataRepository<K, V extends AbstractDataEntity<K>> implements IFore
 		this.cache.set(key, value);
 	}
 
+	protected void loadValuesIntoCache(Collection<V> values) {
+		this.processValues(values);
+		values.forEach(value -> this.cache.set(value.getKey(), value));
+	}
+
+	/**
+	 * Fetch children of lazy foreign collections of all values using IN queries with at most {@link #KEYS_PER_QUERY} parents
+	 * Eager collections are skipped, because ORMLite already loaded them
+	 *
+	 * @param values Parent values
+	 * @return Children of every foreign collection instance, in the order returned by database
+	 */
+	protected Map<ForeignCollection<?>, List<Object>> prefetchForeign(Collection<V> values) {
+		Map<ForeignCollection<?>, List<Object>> result = new IdentityHashMap<>();
+		TableInfo<V, K> tableInfo = EntityColumnUtil.getTableInfo(this.dao);
+		if (values.size() < 2 || tableInfo == null || tableInfo.getIdField() == null) return result;
+
+		List<V> parents = values.stream()
+			.filter(IForeignMapping.class::isInstance)
+			.collect(Collectors.toList());
+		if (parents.size() < 2) return result;
+
+		for (FieldType fieldType : tableInfo.getFieldTypes()) {
+			if (!fieldType.isForeignCollection()) continue;
+			TryCatchUtil.tryRun(() -> this.prefetchCollection(tableInfo, fieldType, parents, result));
+		}
+		return result;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void prefetchCollection(TableInfo<V, K> tableInfo, FieldType collectionField, List<V> parents, Map<ForeignCollection<?>, List<Object>> result) throws Exception {
+		FieldType idField = tableInfo.getIdField();
+		Map<Object, ForeignCollection<?>> collections = new HashMap<>();
+		Dao<Object, Object> childDao = null;
+		for (V parent : parents) {
+			Object value = collectionField.extractJavaFieldValue(parent);
+			if (!(value instanceof ForeignCollection) || value instanceof EagerForeignCollection) continue;
+			ForeignCollection<?> foreign = (ForeignCollection<?>) value;
+			collections.put(idField.extractJavaFieldValue(parent), foreign);
+			if (childDao == null) childDao = (Dao<Object, Object>) (Dao<?, ?>) foreign.getDao();
+		}
+		if (childDao == null) return;
+
+		TableInfo<Object, Object> childInfo = EntityColumnUtil.getTableInfo(childDao);
+		FieldType parentField = childInfo == null ? null : EntityColumnUtil.getForeignField(childInfo, tableInfo.getDataClass());
+		if (parentField == null) return;
+
+		Map<ForeignCollection<?>, List<Object>> fetched = new IdentityHashMap<>();
+		collections.values()
+			.forEach(foreign -> fetched.put(foreign, new ArrayList<>()));
+		Dao<Object, Object> dao = childDao;
+		for (List<Object> chunk : CollectionUtil.partition(new ArrayList<>(collections.keySet()), KEYS_PER_QUERY)) {
+			List<Object> children = this.metrics.timed(
+				"prefetchForeign", () -> dao.queryBuilder()
+					.where()
+					.in(parentField.getColumnName(), chunk)
+					.query()
+			).run();
+			for (Object child : children) {
+				// Foreign fields are extracted as the id of the referenced parent
+				Object parentId = parentField.extractJavaFieldValue(child);
+				ForeignCollection<?> foreign = parentId == null ? null : collections.get(parentId);
+				if (foreign != null) fetched.get(foreign).add(child);
+			}
+		}
+		// Published only when every chunk succeeded, otherwise collections are loaded lazily
+		result.putAll(fetched);
+	}
+
 	@Override
 	public void modify(K key, Consumer<V> action) {
 		boolean contains = this.cache.contains(key);
 		if (!exists(key) && !contains) return;
 
-		action.accept(this.get(key));
+		V value = this.get(key);
+		action.accept(value);
+		value.markModified();
 		if (!contains) {
 			this.save(key);
 			this.cache.invalidate(key);
@@ -162,39 +520,178 @@ public class DataRepository<K, V extends AbstractDataEntity<K>> implements IFore
 
 	@Override
 	public void modifyMultiple(Set<K> keys, Consumer<V> action) {
-		this.loopAll(value -> {
-			if (!keys.contains(value.getKey())) return;
+		List<K> notCached = new ArrayList<>();
+		keys.forEach(key -> {
+			V value = this.cache.get(key);
+			if (value == null) {
+				notCached.add(key);
+				return;
+			}
+			action.accept(value);
+			value.markModified();
+		});
+
+		List<V> loaded = this.queryByKeys(notCached);
+		this.processValues(loaded);
+		loaded.forEach(value -> {
 			action.accept(value);
-			if (!this.cache.contains(value.getKey())) this.saveValue(value);
+			value.markModified();
 		});
+		this.saveBatchIfNotCached(loaded);
+	}
+
+	/**
+	 * Query values with specified keys using IN queries with at most {@link #KEYS_PER_QUERY} keys
+	 * Values are not processed, keys rejected by {@link #presenceFilter} are skipped
+	 *
+	 * @param keys Keys of values
+	 * @return Found values
+	 */
+	protected List<V> queryByKeys(Collection<K> keys) {
+		List<V> result = new ArrayList<>(keys.size());
+		String idColumn = EntityColumnUtil.getIdColumnName(this.dao);
+		List<K> candidates = keys.stream()
+			.filter(this::mightExist)
+			.collect(Collectors.toList());
+		if (candidates.isEmpty() || idColumn == null) return result;
+
+		CollectionUtil.partition(candidates, KEYS_PER_QUERY)
+			.forEach(chunk -> result.addAll(TryCatchUtil.tryOrDefault(
+				this.metrics.timed(
+					"queryByKeys", () -> this.dao.queryBuilder()
+						.where()
+						.in(idColumn, chunk)
+						.query()
+				), new ArrayList<V>()
+			)));
+		return result;
 	}
 
 	@Override
 	public void modifyAll(Consumer<V> action) {
+		if (this.streamChunkSize > 0) {
+			this.cache.values()
+				.forEach(value -> {
+					action.accept(value);
+					value.markModified();
+				});
+			this.streamAll(chunk -> {
+				List<V> modified = this.processNotCached(chunk);
+				modified.forEach(value -> {
+					action.accept(value);
+					value.markModified();
+				});
+				this.saveBatchIfNotCached(modified);
+			});
+			return;
+		}
+
 		this.loopAll(value -> {
 			action.accept(value);
-			if (!this.cache.contains(value.getKey())) this.saveValue(value);
+			value.markModified();
+			this.saveIfNotCached(value);
 		});
 	}
 
+	/**
+	 * Save value modified outside the cache
+	 * Invalidation removes stale copies kept by storage outside its main tier
+	 *
+	 * @param value Modified value
+	 */
+	protected void saveIfNotCached(V value) {
+		if (this.cache.isLoaded(value.getKey())) return;
+		this.saveValue(value);
+		this.cache.invalidate(value.getKey());
+	}
+
+	/**
+	 * Save values modified outside the cache inside one database transaction
+	 *
+	 * @param values Modified values
+	 */
+	protected void saveBatchIfNotCached(Collection<V> values) {
+		List<V> notCached = new ArrayList<>(values.size());
+		values.forEach(value -> {
+			if (!this.cache.isLoaded(value.getKey())) notCached.add(value);
+		});
+		this.saveBatch(notCached);
+		notCached.forEach(value -> this.cache.invalidate(value.getKey()));
+	}
+
 	@Override
 	public void loopAll(Consumer<V> action) {
+		if (this.streamChunkSize > 0) {
+			new ArrayList<>(this.cache.values()).forEach(action);
+			this.streamAll(chunk -> this.processNotCached(chunk)
+				.forEach(action));
+			return;
+		}
+
 		this.loopAll()
 			.forEach(action);
 	}
 
+	/**
+	 * Iterate the whole table in chunks of {@link #streamChunkSize} rows without loading it into memory
+	 * Rows are read through dedicated connection with auto-commit disabled, because drivers like PostgreSQL ignore fetch size in auto-commit mode
+	 * Values are not processed
+	 *
+	 * @param chunkConsumer Consumer of chunks
+	 */
+	protected void streamAll(Consumer<List<V>> chunkConsumer) {
+		int chunkSize = Math.max(1, this.streamChunkSize);
+		TryCatchUtil.tryRun(() -> {
+			ConnectionSource source = this.dao.getConnectionSource();
+			String table = this.dao.getTableName();
+			DatabaseConnection connection = source.getReadOnlyConnection(table);
+			// Single connection is shared with writes of consumer, so its transaction state can't be changed
+			boolean disableAutoCommit = !source.isSingleConnection(table) && connection.isAutoCommitSupported() && connection.isAutoCommit();
+			CloseableIterator<V> iterator = null;
+			try {
+				if (disableAutoCommit) connection.setAutoCommit(false);
+				PreparedQuery<V> query = this.dao.queryBuilder()
+					.prepare();
+				iterator = new SelectIterator<>(this.dao.getDataClass(), this.dao, query, source, connection, query.compile(connection, StatementBuilder.StatementType.SELECT), this.dao.getObjectCache());
+
+				List<V> chunk = new ArrayList<>(chunkSize);
+				while (iterator.hasNext()) {
+					chunk.add(iterator.next());
+					if (chunk.size() < chunkSize) continue;
+					chunkConsumer.accept(chunk);
+					chunk = new ArrayList<>(chunkSize);
+				}
+				if (!chunk.isEmpty()) chunkConsumer.accept(chunk);
+			} finally {
+				// Ends read transaction before connection is released by iterator
+				if (disableAutoCommit) TryCatchUtil.tryRun(() -> connection.setAutoCommit(true));
+				if (iterator != null) iterator.closeQuietly();
+				else source.releaseConnection(connection);
+			}
+		});
+	}
+
 	@Override
 	public Collection<V> loopAll() {
 		Set<V> values = new HashSet<>(this.cache.values());
-		TryCatchUtil.tryOrDefault(this.dao::queryForAll, new ArrayList<V>())
-			.forEach(entity -> {
-				if (this.cache.contains(entity.getKey())) return;
-				this.processValue(entity);
-				values.add(entity);
-			});
+		values.addAll(this.processNotCached(TryCatchUtil.tryOrDefault(this.metrics.timed("queryForAll", this.dao::queryForAll), new ArrayList<V>())));
 		return values;
 	}
 
+	/**
+	 * Process values that are not cached, without adding them to cache
+	 *
+	 * @param values Values from database
+	 * @return Processed values
+	 */
+	protected List<V> processNotCached(List<V> values) {
+		List<V> notCached = values.stream()
+			.filter(value -> !this.cache.isLoaded(value.getKey()))
+			.collect(Collectors.toList());
+		this.processValues(notCached);
+		return notCached;
+	}
+
 	@Override
 	public void save(K key) {
 		if (!cache.contains(key)) return;
@@ -216,19 +713,266 @@ public class DataRepository<K, V extends AbstractDataEntity<K>> implements IFore
 	protected void createInDb(V value) {
 		if (value instanceof IDataEntityLifecycle) ((IDataEntityLifecycle) value).beforeSave(this.plugin);
 		if (value instanceof IForeignMapping) this.javaToDb((IForeignMapping) value);
-		TryCatchUtil.tryRun(() -> this.dao.create(value));
+		TryCatchUtil.tryRun(this.metrics.timedRun(
+			"create", () -> {
+				this.dao.create(value);
+				this.markPresent(value.getKey());
+				this.publishChange(value.getKey(), ChangeType.UPDATE);
+			}
+		));
 	}
 
 	protected void saveToDb(V value) {
+		if (!value.isModified()) return;
 		if (value instanceof IDataEntityLifecycle) ((IDataEntityLifecycle) value).beforeSave(this.plugin);
-		if (value instanceof IForeignMapping) this.javaToDb((IForeignMapping) value);
-		TryCatchUtil.tryRun(() -> this.dao.update(value));
+		boolean childrenSaved = !(value instanceof IForeignMapping) || this.saveForeign((IForeignMapping) value);
+		this.updateInDb(value);
+		// Update marks entity as clean, so it is marked again to retry failed children during the next save
+		if (!childrenSaved) value.markModified();
+	}
+
+	/**
+	 * Update entity row and mark entity as clean
+	 * Entity is marked as modified again when update fails
+	 *
+	 * Versioned entity is updated only when its version matches the row, otherwise the conflict is resolved
+	 *
+	 * @param value Value to update
+	 * @return true when update succeeded
+	 */
+	protected boolean updateInDb(V value) {
+		value.markClean();
+		return TryCatchUtil.tryOrDefault(
+			this.metrics.timed("update", () -> this.updateRow(value)), false, (ex) -> {
+				value.markModified();
+				this.plugin.getLogger()
+					.log(Level.SEVERE, "Something went wrong!", ex);
+			}
+		);
+	}
+
+	/**
+	 * Update entity row, failure is thrown to the caller
+	 *
+	 * @param value Value to update
+	 * @return false when update of versioned entity was rejected and conflict was not resolved
+	 */
+	protected boolean updateRow(V value) throws SQLException {
+		int rows = this.partialUpdates ?
+			this.updateChangedColumns(value) :
+			this.dao.update(value);
+		if (rows == 0) {
+			// Row of entity without version is missing, so nothing changed for other servers
+			if (this.getVersionField() == null) return true;
+			if (!this.resolveConflict(value)) return false;
+		}
+		this.publishChange(value.getKey(), ChangeType.UPDATE);
+		return true;
+	}
+
+	/**
+	 * Update only columns that differ from snapshot
+	 * Version column is moved to the next value and checked in where clause
+	 *
+	 * @return Number of updated rows, 1 when nothing changed
+	 */
+	private int updateChangedColumns(V value) throws SQLException {
+		TableInfo<V, K> tableInfo = EntityColumnUtil.getTableInfo(this.dao);
+		Object[] previous = value.getColumnSnapshot();
+		if (tableInfo == null || previous == null) {
+			int rows = this.dao.update(value);
+			if (rows > 0) this.takeColumnSnapshot(value);
+			return rows;
+		}
+
+		Object[] current = EntityColumnUtil.snapshot(tableInfo, value);
+		FieldType[] fieldTypes = tableInfo.getFieldTypes();
+		FieldType versionField = EntityColumnUtil.getVersionField(tableInfo);
+		UpdateBuilder<V, K> builder = this.dao.updateBuilder();
+		boolean changed = false;
+		for (int i = 0; i < fieldTypes.length; i++) {
+			FieldType fieldType = fieldTypes[i];
+			if (fieldType.isForeignCollection() || fieldType.isId() || fieldType.isGeneratedId() || fieldType.isVersion()) continue;
+			if (Objects.deepEquals(previous[i], current[i])) continue;
+
+			builder.updateColumnValue(fieldType.getColumnName(), new SelectArg(fieldType.extractJavaFieldValue(value)));
+			changed = true;
+		}
+		if (!changed) {
+			value.setColumnSnapshot(current);
+			return 1;
+		}
+
+		Where<V, K> where = builder.where()
+			.idEq(value.getKey());
+		Object nextVersion = null;
+		if (versionField != null) {
+			Object version = versionField.extractJavaFieldValue(value);
+			nextVersion = versionField.moveToNextValue(version);
+			builder.updateColumnValue(versionField.getColumnName(), new SelectArg(nextVersion));
+			if (version == null) where.and()
+				.isNull(versionField.getColumnName());
+			else where.and()
+				.eq(versionField.getColumnName(), new SelectArg(version));
+		}
+
+		int rows = builder.update();
+		if (rows == 0) return 0;
+		if (versionField != null) versionField.assignField(this.dao.getConnectionSource(), value, nextVersion, false, null);
+		value.setColumnSnapshot(EntityColumnUtil.snapshot(tableInfo, value));
+		return rows;
+	}
+
+	private FieldType getVersionField() {
+		TableInfo<V, K> tableInfo = EntityColumnUtil.getTableInfo(this.dao);
+		return tableInfo == null ?
+			null :
+			EntityColumnUtil.getVersionField(tableInfo);
+	}
+
+	/**
+	 * Resolve update of versioned entity that was rejected, because row was changed by someone else
+	 * Remote row is loaded and passed to {@link #conflictHandler} together with local value, then merged value is saved
+	 * Everything is repeated up to {@link #maxConflictRetries} times when row changes again in the meantime
+	 *
+	 * @param local Value that was not saved
+	 * @return true when merged value was saved
+	 */
+	protected boolean resolveConflict(V local) throws SQLException {
+		FieldType versionField = this.getVersionField();
+		K key = local.getKey();
+		V value = local;
+		for (int attempt = 0; attempt < this.maxConflictRetries; attempt++) {
+			V remote = this.dao.queryForId(key);
+			if (remote == null) {
+				this.plugin.getLogger()
+					.warning("Value " + key + " of " + this.metrics.getName() + " was removed by someone else, local changes were dropped");
+				this.cache.invalidate(key);
+				return false;
+			}
+			this.processValue(remote);
+
+			V merged = this.conflictHandler == null ?
+				null :
+				this.conflictHandler.resolve(value, remote);
+			if (merged == null) {
+				if (this.conflictHandler == null) this.plugin.getLogger()
+					.warning("Value " + key + " of " + this.metrics.getName() + " was changed by someone else, local changes were replaced");
+				if (this.cache.contains(key)) this.cache.set(key, remote);
+				return false;
+			}
+
+			versionField.assignField(this.dao.getConnectionSource(), merged, versionField.extractJavaFieldValue(remote), false, null);
+			if (merged != remote && this.partialUpdates) merged.setColumnSnapshot(remote.getColumnSnapshot());
+			int rows = this.partialUpdates ?
+				this.updateChangedColumns(merged) :
+				this.dao.update(merged);
+			if (merged != local && this.cache.contains(key)) this.cache.set(key, merged);
+			if (rows > 0) return true;
+			value = merged;
+		}
+
+		this.plugin.getLogger()
+			.warning("Value " + key + " of " + this.metrics.getName() + " kept changing during " + this.maxConflictRetries + " attempts to save it, it will be saved again later");
+		value.markModified();
+		return false;
+	}
+
+	protected void takeColumnSnapshot(V value) {
+		TableInfo<V, K> tableInfo = EntityColumnUtil.getTableInfo(this.dao);
+		if (tableInfo == null) return;
+		value.setColumnSnapshot(TryCatchUtil.tryAndReturn(() -> EntityColumnUtil.snapshot(tableInfo, value)));
+	}
+
+	/**
+	 * Save values inside one database transaction
+	 * When any update fails, the whole batch is rolled back and saved values are marked as modified again
+	 * Children of saved values are saved after the batch commits
+	 *
+	 * @param values Values to save
+	 * @return true when batch was committed
+	 */
+	protected boolean saveBatch(Collection<V> values) {
+		if (values.isEmpty()) return true;
+		List<V> modified = values.stream()
+			.filter(AbstractDataEntity::isModified)
+			.collect(Collectors.toList());
+		FieldType versionField = this.getVersionField();
+		Map<V, Object[]> columnSnapshots = new IdentityHashMap<>();
+		Map<V, Object> versions = new IdentityHashMap<>();
+		for (V value : modified) {
+			columnSnapshots.put(value, value.getColumnSnapshot());
+			if (versionField != null) versions.put(value, TryCatchUtil.tryAndReturn(() -> versionField.extractJavaFieldValue(value)));
+		}
+
+		List<Runnable> outer = DEFERRED_PUBLISHES.get();
+		List<Runnable> deferred = new ArrayList<>();
+		DEFERRED_PUBLISHES.set(deferred);
+		boolean committed;
+		try {
+			// Unlike callBatchTasks, transaction is rolled back when any statement fails
+			committed = TryCatchUtil.tryOrDefault(
+				this.metrics.timed(
+					"saveBatch", () -> TransactionManager.callInTransaction(
+						this.dao.getConnectionSource(), () -> {
+							for (V value : modified) this.saveInBatch(value);
+							return true;
+						}
+					)
+				), false, (ex) -> this.plugin.getLogger()
+					.log(Level.SEVERE, "Batch of " + this.metrics.getName() + " was rolled back", ex)
+			);
+		} finally {
+			DEFERRED_PUBLISHES.set(outer);
+		}
+
+		if (!committed) {
+			// Nothing was written, so versions and snapshots moved by updates are restored
+			modified.forEach(value -> {
+				value.setColumnSnapshot(columnSnapshots.get(value));
+				if (versionField != null) TryCatchUtil.tryRun(() -> versionField.assignField(this.dao.getConnectionSource(), value, versions.get(value), false, null));
+				value.markModified();
+			});
+			return false;
+		}
+		if (outer != null) outer.addAll(deferred);
+		else deferred.forEach(Runnable::run);
+		modified.forEach(this::saveChildrenAfterBatch);
+		return true;
+	}
+
+	/**
+	 * Save modified value inside transaction of {@link #saveBatch(Collection)}
+	 * Unlike {@link #saveToDb(Object)}, failure is thrown, so the whole batch is rolled back
+	 *
+	 * @param value Modified value
+	 */
+	protected void saveInBatch(V value) throws Exception {
+		if (value instanceof IDataEntityLifecycle) ((IDataEntityLifecycle) value).beforeSave(this.plugin);
+		value.markClean();
+		this.metrics.timed("update", () -> this.updateRow(value))
+			.run();
+	}
+
+	/**
+	 * Save children of value saved by committed batch
+	 * Children are saved in their own transactions, so their failure does not roll back the batch
+	 *
+	 * @param value Saved value
+	 */
+	protected void saveChildrenAfterBatch(V value) {
+		if (value instanceof IForeignMapping && !this.saveForeign((IForeignMapping) value)) value.markModified();
 	}
 
 	@Override
 	public void saveAll() {
+		SaveCycleStats stats = new SaveCycleStats();
 		this.cache.values()
-			.forEach(this::saveToDb);
+			.forEach(value -> {
+				stats.record(value.isModified());
+				this.saveToDb(value);
+			});
+		this.lastSaveCycle = stats;
 	}
 
 	@Override
@@ -253,59 +997,181 @@ public class DataRepository<K, V extends AbstractDataEntity<K>> implements IFore
 	@Override
 	public boolean exists(K key) {
 		if (this.cache.contains(key)) return true;
-		return TryCatchUtil.tryOrDefault(() -> this.dao.idExists(key), false);
+		if (!this.mightExist(key)) return false;
+		return TryCatchUtil.tryOrDefault(
+			this.metrics.timed(
+				"idExists", () -> {
+					boolean exists = this.dao.idExists(key);
+					if (!exists) this.markMissing(key);
+					return exists;
+				}
+			), false
+		);
 	}
 
 	@Override
 	public void dbToJava(IForeignMapping entity) {
+		this.dbToJava(entity, Collections.emptyMap());
+	}
+
+	protected void dbToJava(IForeignMapping entity, Map<ForeignCollection<?>, List<Object>> prefetched) {
 		entity.getForeignMapping()
-			.forEach((foreign, collection) -> this.addAllForeignToCollection(entity, foreign, collection));
+			.forEach((foreign, collection) -> this.addAllForeignToCollection(entity, foreign, collection, prefetched.get(foreign)));
 
 		entity.getForeignMappers()
-			.forEach(mapper -> this.addAllMapper(entity, mapper));
+			.forEach(mapper -> this.addAllMapper(entity, mapper, prefetched.get(mapper.getForeign())));
 	}
 
 	@Override
 	public void javaToDb(IForeignMapping entity) {
-		entity.getForeignMapping()
-			.forEach((foreign, collection) -> {
-				foreign.removeIf(o -> !collection.contains(o));
-				collection.forEach(obj -> {
-					if (obj.getKey() != null) updateForeign(foreign, obj);
-					else addToForeign(foreign, obj);
-				});
-			});
+		this.saveForeign(entity);
+	}
 
-		entity.getForeignMappers()
-			.forEach(mapper -> {
-				mapper.getForeign()
-					.removeIf(o -> !mapper.getCache()
-						.containsKey(this.extractKeyFromMapper(mapper, o)));
-				mapper.getCache()
-					.forEach((key, obj) -> {
-						if (obj.getKey() != null) updateForeign(mapper.getForeign(), obj);
-						else addToForeign(mapper.getForeign(), obj);
-					});
-			});
+	/**
+	 * Save foreign collections and mappers of entity
+	 *
+	 * @param entity Parent entity
+	 * @return false when some children failed to save
+	 */
+	protected boolean saveForeign(IForeignMapping entity) {
+		boolean saved = true;
+		for (Map.Entry<ForeignCollection<? extends AbstractDataEntity<Integer>>, Collection<? extends AbstractDataEntity<Integer>>> entry : entity.getForeignMapping()
+			.entrySet())
+			saved &= this.syncForeign(entity, entry.getKey(), entry.getValue());
+		for (ForeignMapper<?> mapper : entity.getForeignMappers())
+			saved &= this.syncMapper(entity, mapper);
+		return saved;
+	}
+
+	/**
+	 * @return false when children failed to save
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T extends AbstractDataEntity<Integer>> boolean syncForeign(IForeignMapping parent, ForeignCollection<T> foreign, Collection<? extends AbstractDataEntity<Integer>> collection) {
+		Collection<T> children = (Collection<T>) collection;
+		if (this.hasForeignSnapshot(parent, foreign)) return this.syncChanged(parent, foreign, children);
+
+		foreign.removeIf(o -> !children.contains(o));
+		children.forEach(obj -> {
+			if (obj.getKey() != null) updateForeign(foreign, obj);
+			else addToForeign(foreign, obj);
+		});
+		this.takeForeignSnapshot(parent, foreign, children);
+		return true;
+	}
+
+	/**
+	 * @return false when children failed to save
+	 */
+	protected <T extends AbstractDataEntity<Integer>> boolean syncMapper(IForeignMapping parent, ForeignMapper<T> mapper) {
+		Collection<T> children = mapper.getCache()
+			.values();
+		if (this.hasForeignSnapshot(parent, mapper.getForeign())) return this.syncChanged(parent, mapper.getForeign(), children);
+
+		mapper.getForeign()
+			.removeIf(o -> !mapper.getCache()
+				.containsKey(this.extractKeyFromMapper(mapper, o)));
+		children.forEach(obj -> {
+			if (obj.getKey() != null) updateForeign(mapper.getForeign(), obj);
+			else addToForeign(mapper.getForeign(), obj);
+		});
+		this.takeForeignSnapshot(parent, mapper.getForeign(), children);
+		return true;
+	}
+
+	/**
+	 * Check if only changed children can be saved, otherwise the whole collection has to be saved
+	 */
+	@SuppressWarnings("unchecked")
+	private <T extends AbstractDataEntity<Integer>> boolean hasForeignSnapshot(IForeignMapping parent, ForeignCollection<T> foreign) {
+		if (!(parent instanceof AbstractDataEntity<?>)) return false;
+		return ((AbstractDataEntity<?>) parent).getForeignSnapshot(foreign) != null && EntityColumnUtil.getTableInfo((Dao<T, Integer>) foreign.getDao()) != null;
+	}
+
+	/**
+	 * Save only children that were removed, added or changed since the last snapshot, in one transaction
+	 * When transaction fails, ids generated for new children are reset, so they are created again during the next save
+	 *
+	 * @param parent   Parent entity with snapshot of children
+	 * @param foreign  Foreign collection of parent
+	 * @param children Current children
+	 * @return false when transaction failed
+	 */
+	@SuppressWarnings("unchecked")
+	private <T extends AbstractDataEntity<Integer>> boolean syncChanged(IForeignMapping parent, ForeignCollection<T> foreign, Collection<T> children) {
+		Set<Integer> loaded = ((AbstractDataEntity<?>) parent).getForeignSnapshot(foreign);
+		Dao<T, Integer> childDao = (Dao<T, Integer>) foreign.getDao();
+		TableInfo<T, Integer> tableInfo = EntityColumnUtil.getTableInfo(childDao);
+
+		Set<Integer> removed = new HashSet<>(loaded);
+		children.forEach(child -> {
+			if (child.getKey() != null) removed.remove(child.getKey());
+		});
+
+		FieldType idField = tableInfo.getIdField();
+		Map<T, Object> createdIds = new IdentityHashMap<>();
+		// Unlike callBatchTasks, transaction is rolled back when any statement fails
+		boolean saved = TryCatchUtil.tryOrDefault(
+			() -> TransactionManager.callInTransaction(
+				childDao.getConnectionSource(), () -> {
+					if (!removed.isEmpty()) childDao.deleteIds(removed);
+					for (T child : children) {
+						if (child.getKey() == null) {
+							if (idField != null) createdIds.put(child, idField.extractJavaFieldValue(child));
+							foreign.add(child);
+							continue;
+						}
+						Object[] previous = child.getColumnSnapshot();
+						if (previous != null && Arrays.deepEquals(previous, EntityColumnUtil.snapshot(tableInfo, child))) continue;
+						childDao.update(child);
+					}
+					return true;
+				}
+			), false
+		);
+		// Failed changes stay different from snapshot, so they are retried during the next save of the parent
+		if (saved) this.takeForeignSnapshot(parent, foreign, children);
+		else createdIds.forEach((child, id) -> TryCatchUtil.tryRun(() -> idField.assignField(childDao.getConnectionSource(), child, id, false, null)));
+		return saved;
+	}
+
+	/**
+	 * Remember keys and column values of children, so the next save writes only changes
+	 */
+	@SuppressWarnings("unchecked")
+	protected <T extends AbstractDataEntity<Integer>> void takeForeignSnapshot(IForeignMapping parent, ForeignCollection<T> foreign, Collection<T> children) {
+		if (!(parent instanceof AbstractDataEntity<?>)) return;
+		TableInfo<T, Integer> tableInfo = EntityColumnUtil.getTableInfo((Dao<T, Integer>) foreign.getDao());
+		if (tableInfo == null) return;
+
+		Set<Integer> keys = new HashSet<>();
+		children.forEach(child -> {
+			if (child.getKey() == null) return;
+			keys.add(child.getKey());
+			child.setColumnSnapshot(TryCatchUtil.tryAndReturn(() -> EntityColumnUtil.snapshot(tableInfo, child)));
+		});
+		((AbstractDataEntity<?>) parent).setForeignSnapshot(foreign, keys);
 	}
 
 	@Override
 	public void refreshForeign(IForeignMapping parent, ForeignCollection<? extends AbstractDataEntity<Integer>> foreign, Collection<? extends AbstractDataEntity<Integer>> collection) {
-		this.addAllForeignToCollection(parent, foreign, collection);
+		this.addAllForeignToCollection(parent, foreign, collection, null);
 	}
 
 	@Override
 	public void refreshForeign(IForeignMapping parent, ForeignMapper<?> mapper) {
-		this.addAllMapper(parent, mapper);
+		this.addAllMapper(parent, mapper, null);
 	}
 
 	@SuppressWarnings("unchecked")
-	private <T> void addAllForeignToCollection(IForeignMapping parent, ForeignCollection<?> foreign, Collection<T> collection) {
+	private <T> void addAllForeignToCollection(IForeignMapping parent, ForeignCollection<?> foreign, Collection<T> collection, List<Object> prefetched) {
 		collection.clear();
-		foreign.forEach(entity -> {
+		Iterable<?> children = prefetched != null ? prefetched : foreign;
+		children.forEach(entity -> {
 			this.updateChild(parent, entity, foreign);
 			collection.add((T) entity);
 		});
+		this.takeForeignSnapshot(parent, (ForeignCollection<AbstractDataEntity<Integer>>) foreign, (Collection<AbstractDataEntity<Integer>>) collection);
 	}
 
 	@SuppressWarnings("unchecked")
@@ -321,10 +1187,12 @@ public class DataRepository<K, V extends AbstractDataEntity<K>> implements IFore
 		}
 	}
 
-	private <T extends AbstractDataEntity<Integer>> void addAllMapper(IForeignMapping parent, ForeignMapper<T> mapper) {
+	@SuppressWarnings("unchecked")
+	private <T extends AbstractDataEntity<Integer>> void addAllMapper(IForeignMapping parent, ForeignMapper<T> mapper, List<Object> prefetched) {
 		mapper.getCache()
 			.clear();
-		mapper.getForeign()
+		Iterable<T> children = prefetched != null ? (Iterable<T>) (Iterable<?>) prefetched : mapper.getForeign();
+		children
 			.forEach(e -> {
 				this.updateChild(parent, e, mapper.getForeign());
 				mapper.getCache()
@@ -333,6 +1201,8 @@ public class DataRepository<K, V extends AbstractDataEntity<K>> implements IFore
 							.apply(e), e
 					);
 			});
+		this.takeForeignSnapshot(parent, mapper.getForeign(), mapper.getCache()
+			.values());
 	}
 
 	@SuppressWarnings("unchecked")
@@ -20,22 +20,36 @@ import com.enhancedprojects.enhancedspigot.data.DatabaseController;
 import com.enhancedprojects.enhancedspigot.data.repository.entity.AbstractDataEntity;
 import com.enhancedprojects.enhancedspigot.data.repository.entity.IDataEntityLifecycle;
 import com.enhancedprojects.enhancedspigot.data.storage.IDataStorage;
+import com.enhancedprojects.enhancedspigot.data.sync.ChangeType;
 import com.enhancedprojects.enhancedspigot.data.util.AsyncPriorityMap;
 import com.enhancedprojects.enhancedspigot.data.util.DisableLock;
+import com.enhancedprojects.enhancedspigot.data.util.TimingWheel;
 import com.enhancedprojects.enhancedspigot.util.SchedulerUtil;
 import com.enhancedprojects.enhancedspigot.util.TryCatchUtil;
 import com.j256.ormlite.dao.ForeignCollection;
+import com.j256.ormlite.misc.TransactionManager;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
+import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
 
 /**
  * Save changes in foreign collections after a delay after reporting them to avoid large amounts of writes when saving the entire object
@@ -47,11 +61,20 @@ import java.util.concurrent.ConcurrentMap;
  * @param <V>
  */
 public class RealtimeDataRepository<K, V extends AbstractDataEntity<K>> extends AsyncDataRepository<K, V> {
+	private static final long FLUSH_TICK_MILLIS = 50L;
+	private static final int FLUSH_WHEEL_SIZE = 512;
+
 	private final long changesWaitingTIme;
 	private final long changesMaxWaitingTime;
 	@Getter private final AsyncRealtimePriorityMap asyncRealtimePriorityMap;
 
 	private final ConcurrentMap<K, ConcurrentMap<String, PendingChange<?>>> pendingChanges;
+	/**
+	 * Creates and deletes of children waiting for the next flush, mutated only inside compute
+	 */
+	private final ConcurrentMap<K, List<StructuralChange<?>>> structuralChanges = new ConcurrentHashMap<>();
+	private final TimingWheel<PendingChange<?>> flushWheel = new TimingWheel<>(FLUSH_TICK_MILLIS, FLUSH_WHEEL_SIZE);
+	private volatile SchedulerUtil.Task flushTask;
 
 	public RealtimeDataRepository(DatabaseController controller, IDataStorage<K, V> cache, JavaPlugin plugin, long changesWaitingTIme, long changesMaxWaitingTime, AsyncRealtimePriorityMap asyncRealtimePriorityMap) {
 		super(controller, cache, plugin, asyncRealtimePriorityMap.getAsyncPriorityMap());
@@ -71,47 +94,265 @@ public class RealtimeDataRepository<K, V extends AbstractDataEntity<K>> extends
 
 	public <T extends AbstractDataEntity<?>> void addPendingChange(K entityKey, T foreignValue, ForeignCollection<T> foreignCollection) {
 		String changeKey = String.valueOf(foreignValue.getKey());
+		long now = System.currentTimeMillis();
+		long journalSequence = this.journalSave(foreignCollection.getDao(), foreignValue);
+		List<PendingChange<?>> expired = new ArrayList<>(1);
+		List<PendingChange<?>> created = new ArrayList<>(1);
 
-		this.pendingChanges.putIfAbsent(entityKey, new ConcurrentHashMap<>());
-		Map<String, PendingChange<?>> entityChanges = this.pendingChanges.get(entityKey);
-
-		PendingChange<?> change;
-		if (entityChanges.containsKey(changeKey)) {
-			change = entityChanges.get(changeKey);
-			change.task.cancel();
+		// Lookup and reschedule run atomically with removals done by flusher, so change that was already taken is never extended
+		this.pendingChanges.compute(
+			entityKey, (key, entityChanges) -> {
+				ConcurrentMap<String, PendingChange<?>> changes = entityChanges == null ?
+					new ConcurrentHashMap<>() :
+					entityChanges;
+				PendingChange<?> change = changes.get(changeKey);
+				if (change != null && !change.isCancelled()) {
+					// New record replaces the older one when it is acknowledged
+					change.setJournalSequence(journalSequence);
+					if (now - change.firstChangeTime >= this.changesMaxWaitingTime) {
+						change.cancel();
+						changes.remove(changeKey);
+						expired.add(change);
+					} else {
+						// Entry in wheel is moved to the new deadline when it expires
+						change.setDeadline(Math.min(now + this.changesWaitingTIme, change.firstChangeTime + this.changesMaxWaitingTime));
+					}
+					return changes.isEmpty() ?
+						null :
+						changes;
+				}
 
-			if (System.currentTimeMillis() - change.firstChangeTime >= this.changesMaxWaitingTime) {
-				change.saveAsync(this.asyncRealtimePriorityMap.progressPriority, System.currentTimeMillis());
-				entityChanges.remove(changeKey);
-				return;
+				PendingChange<T> newChange = new PendingChange<>(entityKey, changeKey, foreignValue, foreignCollection, now);
+				newChange.setJournalSequence(journalSequence);
+				newChange.setDeadline(now + Math.min(this.changesWaitingTIme, this.changesMaxWaitingTime));
+				changes.put(changeKey, newChange);
+				created.add(newChange);
+				return changes;
 			}
-		} else {
-			change = new PendingChange<>(foreignValue, foreignCollection, System.currentTimeMillis(), null);
+		);
+
+		expired.forEach(change -> change.saveAsync(this.asyncRealtimePriorityMap.progressPriority, now));
+		created.forEach(change -> this.flushWheel.schedule(change, change.getDeadline()));
+		this.startFlushTask();
+	}
+
+	private void startFlushTask() {
+		if (this.flushTask != null || DisableLock.IS_LOCKED) return;
+		synchronized (this.flushWheel) {
+			if (this.flushTask != null) return;
+			this.flushTask = SchedulerUtil.runTaskTimerAsynchronously(this.plugin, this::flushExpired, 1L, 1L);
+		}
+	}
+
+	/**
+	 * Cancel task that flushes pending changes
+	 * Called when repository is drained, the task starts again with the next reported change
+	 */
+	public void stopFlushTask() {
+		synchronized (this.flushWheel) {
+			if (this.flushTask == null) return;
+			this.flushTask.cancel();
+			this.flushTask = null;
 		}
+	}
+
+	/**
+	 * Create child in the next flush of its parent
+	 *
+	 * @param parentKey  Key of parent entity
+	 * @param foreign    Child to create
+	 * @param collection Foreign collection of parent
+	 */
+	public <T> void queueCreate(K parentKey, T foreign, ForeignCollection<T> collection) {
+		StructuralChange<T> change = new StructuralChange<>(false, foreign, collection);
+		change.setJournalSequence(this.journalSave(collection.getDao(), foreign));
+		this.queueStructural(parentKey, change);
+	}
+
+	/**
+	 * Delete child in the next flush of its parent
+	 * Pending change of the child is dropped
+	 *
+	 * @param parentKey  Key of parent entity
+	 * @param foreign    Child to delete
+	 * @param collection Foreign collection of parent
+	 */
+	public <T> void queueDelete(K parentKey, T foreign, ForeignCollection<T> collection) {
+		if (foreign instanceof AbstractDataEntity<?>) this.cancelPending(parentKey, String.valueOf(((AbstractDataEntity<?>) foreign).getKey()));
+		StructuralChange<T> change = new StructuralChange<>(true, foreign, collection);
+		change.setJournalSequence(this.journalDelete(collection.getDao(), foreign));
+		this.queueStructural(parentKey, change);
+	}
+
+	private void queueStructural(K parentKey, StructuralChange<?> change) {
+		this.structuralChanges.compute(
+			parentKey, (key, changes) -> {
+				List<StructuralChange<?>> result = changes == null ?
+					new ArrayList<>() :
+					changes;
+				result.add(change);
+				return result;
+			}
+		);
+		this.startFlushTask();
+	}
 
-		SchedulerUtil.Task task = SchedulerUtil.runTaskLater(
-			this.plugin, () -> {
-				change.saveAsync(this.asyncRealtimePriorityMap.progressPriority, System.currentTimeMillis());
-				entityChanges.remove(changeKey);
-			}, this.changesWaitingTIme / 50
+	/**
+	 * Save pending changes whose deadline passed and queued creates and deletes
+	 * Changes are grouped by parent and every parent is saved in one transaction
+	 * Called every tick by one repeating task
+	 */
+	protected void flushExpired() {
+		long now = System.currentTimeMillis();
+		Map<K, List<PendingChange<?>>> updates = new HashMap<>();
+		this.flushWheel.advance(now)
+			.forEach(change -> {
+				if (change.isCancelled()) return;
+				if (change.getDeadline() > now) {
+					this.flushWheel.schedule(change, change.getDeadline());
+					return;
+				}
+
+				if (!this.takeExpired(change, now)) return;
+				updates.computeIfAbsent(change.getParentKey(), key -> new ArrayList<>())
+					.add(change);
+			});
+
+		Set<K> parents = new HashSet<>(updates.keySet());
+		parents.addAll(this.structuralChanges.keySet());
+		parents.forEach(parentKey -> this.flushParentAsync(parentKey, this.structuralChanges.remove(parentKey), updates.get(parentKey), now));
+	}
+
+	/**
+	 * Remove expired change from pending changes, atomically with {@link #addPendingChange(Object, AbstractDataEntity, ForeignCollection)}
+	 *
+	 * @return false when change was replaced, cancelled or rescheduled in the meantime
+	 */
+	private boolean takeExpired(PendingChange<?> change, long now) {
+		boolean[] taken = {false};
+		this.pendingChanges.computeIfPresent(
+			change.getParentKey(), (key, changes) -> {
+				if (changes.get(change.getChangeKey()) != change || change.isCancelled()) return changes;
+				if (change.getDeadline() > now) {
+					// Extended after the wheel returned it
+					this.flushWheel.schedule(change, change.getDeadline());
+					return changes;
+				}
+				changes.remove(change.getChangeKey());
+				change.cancel();
+				taken[0] = true;
+				return changes.isEmpty() ?
+					null :
+					changes;
+			}
+		);
+		return taken[0];
+	}
+
+	private CompletableFuture<Void> flushParentAsync(K parentKey, List<StructuralChange<?>> structural, Collection<PendingChange<?>> updates, long operationId) {
+		List<StructuralChange<?>> structuralChanges = structural == null ?
+			Collections.emptyList() :
+			structural;
+		Collection<PendingChange<?>> pendingUpdates = updates == null ?
+			Collections.emptyList() :
+			updates;
+		if (structuralChanges.isEmpty() && pendingUpdates.isEmpty()) return CompletableFuture.completedFuture(null);
+
+		int priority = structuralChanges.isEmpty() ?
+			this.asyncRealtimePriorityMap.progressPriority :
+			this.asyncRealtimePriorityMap.liveActionPriority;
+		CompletableFuture<Void> future = this.runKeyedAsync(
+			parentKey, () -> {
+				this.flushParent(structuralChanges, pendingUpdates);
+				this.publishChange(parentKey, ChangeType.UPDATE);
+			}, priority, operationId
 		);
-		change.setTask(task);
-		entityChanges.put(changeKey, change);
+		return future == null ?
+			CompletableFuture.completedFuture(null) :
+			future;
+	}
+
+	/**
+	 * Save changes of children of one parent in one transaction
+	 * Deletes run first, then creates and updates. Children created and deleted since the last flush are skipped
+	 * When transaction fails, changes are saved one by one
+	 * Journal records of changes are acknowledged after they are saved
+	 *
+	 * @param structural Creates and deletes in order of reporting
+	 * @param updates    Changed children
+	 */
+	protected void flushParent(List<StructuralChange<?>> structural, Collection<PendingChange<?>> updates) {
+		if (structural.isEmpty() && updates.isEmpty()) return;
+
+		Set<Object> created = Collections.newSetFromMap(new IdentityHashMap<>());
+		Set<Object> deleted = Collections.newSetFromMap(new IdentityHashMap<>());
+		structural.forEach(change -> (change.isDelete() ?
+			deleted :
+			created).add(change.getValue()));
+
+		List<StructuralChange<?>> ordered = new ArrayList<>(structural.size());
+		structural.forEach(change -> {
+			if (change.isDelete() && !created.contains(change.getValue())) ordered.add(change);
+		});
+		structural.forEach(change -> {
+			if (!change.isDelete() && !deleted.contains(change.getValue())) ordered.add(change);
+		});
+		List<PendingChange<?>> changed = new ArrayList<>(updates.size());
+		updates.forEach(change -> {
+			if (!deleted.contains(change.getValue())) changed.add(change);
+		});
+
+		TryCatchUtil.tryRun(
+			() -> {
+				TransactionManager.callInTransaction(
+					this.dao.getConnectionSource(), () -> {
+						for (StructuralChange<?> change : ordered) {
+							change.apply();
+						}
+						for (PendingChange<?> change : changed) {
+							change.update();
+						}
+						return null;
+					}
+				);
+				ordered.forEach(change -> this.journalAcknowledge(change.getJournalSequence()));
+				changed.forEach(change -> this.journalAcknowledge(change.getJournalSequence()));
+			}, (ex) -> {
+				this.plugin.getLogger()
+					.log(Level.WARNING, "Transaction of realtime changes failed, saving them separately", ex);
+				ordered.forEach(change -> TryCatchUtil.tryRun(() -> {
+					change.apply();
+					this.journalAcknowledge(change.getJournalSequence());
+				}));
+				changed.forEach(PendingChange::save);
+			}
+		);
+
+		// Skipped changes have nothing left to save
+		structural.forEach(change -> {
+			if (!ordered.contains(change)) this.journalAcknowledge(change.getJournalSequence());
+		});
+		updates.forEach(change -> {
+			if (!changed.contains(change)) this.journalAcknowledge(change.getJournalSequence());
+		});
 	}
 
 	public void saveAllPendingSync() {
-		this.pendingChanges.keySet()
-			.forEach(this::saveAllPendingSync);
+		Set<K> parents = new HashSet<>(this.pendingChanges.keySet());
+		parents.addAll(this.structuralChanges.keySet());
+		parents.forEach(this::saveAllPendingSync);
 	}
 
 	public void saveAllPendingSync(K key) {
-		this.pendingChanges.getOrDefault(key, new ConcurrentHashMap<>())
-			.values()
-			.forEach(change -> {
-				change.task.cancel();
-				change.save();
-			});
-		this.pendingChanges.remove(key);
+		List<StructuralChange<?>> structural = this.structuralChanges.remove(key);
+		Collection<PendingChange<?>> updates = this.takePending(key);
+		if (structural == null && updates.isEmpty()) return;
+		this.flushParent(
+			structural == null ?
+				Collections.emptyList() :
+				structural, updates
+		);
+		this.publishChange(key, ChangeType.UPDATE);
 	}
 
 	public CompletableFuture<Void> saveAllPending(K key, int priority) {
@@ -120,50 +361,80 @@ public class RealtimeDataRepository<K, V extends AbstractDataEntity<K>> extends
 			return CompletableFuture.completedFuture(null);
 		}
 
-		long operationId = System.currentTimeMillis();
-		return CompletableFuture.allOf(this.pendingChanges.getOrDefault(key, new ConcurrentHashMap<>())
-				.values()
-				.stream()
-				.map(pendingChange -> {
-					pendingChange.task.cancel();
-					return pendingChange.saveAsync(priority, operationId);
-				})
-				.toArray(CompletableFuture[]::new))
-			.thenRun(() -> this.pendingChanges.remove(key));
+		return this.flushParentAsync(key, this.structuralChanges.remove(key), this.takePending(key), System.currentTimeMillis());
+	}
+
+	private Collection<PendingChange<?>> takePending(K key) {
+		Map<String, PendingChange<?>> changes = this.pendingChanges.remove(key);
+		if (changes == null) return Collections.emptyList();
+		changes.values()
+			.forEach(PendingChange::cancel);
+		return changes.values();
 	}
 
 	public void cancelAllPending(K key) {
-		if (!this.pendingChanges.containsKey(key)) return;
-		this.pendingChanges.get(key)
-			.forEach((k, change) -> {
-				change.task.cancel();
-			});
-		this.pendingChanges.remove(key);
+		List<StructuralChange<?>> structural = this.structuralChanges.remove(key);
+		if (structural != null) structural.forEach(change -> this.journalAcknowledge(change.getJournalSequence()));
+		Map<String, PendingChange<?>> changes = this.pendingChanges.remove(key);
+		if (changes == null) return;
+		changes.forEach((k, change) -> {
+			change.cancel();
+			this.journalAcknowledge(change.getJournalSequence());
+		});
 	}
 
 	public void cancelPending(K key, String changeKey) {
-		if (!this.pendingChanges.containsKey(key)) return;
-		PendingChange<?> change = this.pendingChanges.get(key)
-			.get(changeKey);
-		if (change == null) return;
+		List<PendingChange<?>> cancelled = new ArrayList<>(1);
+		this.pendingChanges.computeIfPresent(
+			key, (parentKey, changes) -> {
+				PendingChange<?> change = changes.remove(changeKey);
+				if (change != null) {
+					change.cancel();
+					cancelled.add(change);
+				}
+				return changes.isEmpty() ?
+					null :
+					changes;
+			}
+		);
+		cancelled.forEach(change -> this.journalAcknowledge(change.getJournalSequence()));
+	}
 
-		change.task.cancel();
-		this.pendingChanges.get(key)
-			.remove(changeKey);
+	@Override
+	protected List<CompletableFuture<Void>> submitDrainJobs(long operationId) {
+		this.stopFlushTask();
+		// Pending changes are taken first, so saves of parents don't queue them again
+		Set<K> parents = new HashSet<>(this.pendingChanges.keySet());
+		parents.addAll(this.structuralChanges.keySet());
+		List<CompletableFuture<Void>> jobs = new ArrayList<>(parents.size());
+		parents.forEach(parentKey -> jobs.add(this.flushParentAsync(parentKey, this.structuralChanges.remove(parentKey), this.takePending(parentKey), operationId)));
+		jobs.addAll(super.submitDrainJobs(operationId));
+		return jobs;
+	}
+
+	@Override
+	protected Set<K> getUnsavedKeys() {
+		Set<K> keys = super.getUnsavedKeys();
+		this.pendingChanges.forEach((key, changes) -> {
+			if (!changes.isEmpty()) keys.add(key);
+		});
+		keys.addAll(this.structuralChanges.keySet());
+		return keys;
 	}
 
 	@Override
 	protected CompletableFuture<Void> saveToDbAsync(V value, int priority, long operationId) {
-		return this.runAsync(
-				() -> {
-					if (!this.cache.contains(value.getKey())) return;
+		if (!value.isModified()) return this.saveAllPending(value.getKey(), priority);
+		long journalSequence = this.journalSave(this.dao, value);
+		return this.runKeyedAsync(
+				value.getKey(), () -> {
+					if (!this.cache.isLoaded(value.getKey())) return;
 					if (value instanceof IDataEntityLifecycle) ((IDataEntityLifecycle) value).beforeSave(this.plugin);
 				}, priority, operationId
 			)
-			.thenCompose(v -> this.runAsync(
-				() -> {
-					if (!this.cache.contains(value.getKey())) return;
-					TryCatchUtil.tryRun(() -> this.dao.update(value));
+			.thenCompose(v -> this.runKeyedAsync(
+				value.getKey(), () -> {
+					if (!this.cache.isLoaded(value.getKey()) || this.updateInDb(value)) this.journalAcknowledge(journalSequence);
 				}, priority, operationId
 			))
 			.thenCompose(v -> this.saveAllPending(value.getKey(), priority));
@@ -171,14 +442,31 @@ public class RealtimeDataRepository<K, V extends AbstractDataEntity<K>> extends
 
 	@Override
 	protected void saveToDb(V value) {
-		if (value instanceof IDataEntityLifecycle) ((IDataEntityLifecycle) value).beforeSave(this.plugin);
-		TryCatchUtil.tryRun(() -> this.dao.update(value));
+		if (value.isModified()) {
+			if (value instanceof IDataEntityLifecycle) ((IDataEntityLifecycle) value).beforeSave(this.plugin);
+			this.updateInDb(value);
+		}
 		this.saveAllPending(
 			value.getKey(), this.getAsyncPriorityMap()
 				.getSavePriority()
 		);
 	}
 
+	@Override
+	protected boolean saveBatch(Collection<V> values) {
+		boolean committed = super.saveBatch(values);
+		values.forEach(value -> this.saveAllPending(
+			value.getKey(), this.getAsyncPriorityMap()
+				.getSavePriority()
+		));
+		return committed;
+	}
+
+	@Override
+	protected void saveChildrenAfterBatch(V value) {
+		// Only pending changes of children are saved
+	}
+
 	public void saveFull(V value) {
 		super.saveToDb(value);
 	}
@@ -198,6 +486,7 @@ public class RealtimeDataRepository<K, V extends AbstractDataEntity<K>> extends
 		super.removeAll();
 		this.pendingChanges.keySet()
 			.forEach(this::cancelAllPending);
+		this.structuralChanges.clear();
 	}
 
 	@Getter @Builder @NoArgsConstructor @AllArgsConstructor public static class AsyncRealtimePriorityMap {
@@ -212,18 +501,56 @@ public class RealtimeDataRepository<K, V extends AbstractDataEntity<K>> extends
 		}
 	}
 
-	@Getter @Setter @AllArgsConstructor public class PendingChange<T> {
+	@Getter @Setter @RequiredArgsConstructor public class PendingChange<T> {
+		private final K parentKey;
+		private final String changeKey;
 		private final T value;
 		private final ForeignCollection<T> collection;
 		private final long firstChangeTime;
-		private SchedulerUtil.Task task;
+		/**
+		 * Time when change should be saved, moved forward by every new change until max waiting time
+		 */
+		private volatile long deadline;
+		/**
+		 * Set when change leaves pending changes because it was flushed, saved or dropped
+		 * Cancelled changes are skipped by flusher and never extended by new reports
+		 */
+		private volatile boolean cancelled;
+		/**
+		 * Journal record of the latest value, 0 when not journaled
+		 */
+		private volatile long journalSequence;
+
+		public void cancel() {
+			this.cancelled = true;
+		}
 
 		public void save() {
-			TryCatchUtil.tryAndReturn(() -> this.collection.update(value));
+			TryCatchUtil.tryRun(() -> {
+				this.update();
+				journalAcknowledge(this.journalSequence);
+			});
+		}
+
+		public int update() throws SQLException {
+			return this.collection.update(value);
 		}
 
 		public CompletableFuture<Void> saveAsync(int priority, long operationId) {
-			return runAsync(this::save, priority, operationId);
+			return runKeyedAsync(this.parentKey, this::save, priority, operationId);
+		}
+	}
+
+	@Getter @RequiredArgsConstructor public static class StructuralChange<T> {
+		private final boolean delete;
+		private final T value;
+		private final ForeignCollection<T> collection;
+		@Setter private volatile long journalSequence;
+
+		public void apply() throws SQLException {
+			if (this.delete) this.collection.getDao()
+				.delete(this.value);
+			else this.collection.add(this.value);
 		}
 	}
 }
@@ -23,12 +23,16 @@ import com.enhancedprojects.enhancedspigot.data.repository.entity.AbstractDataEn
 import com.enhancedprojects.enhancedspigot.data.repository.iface.IAsyncDataRepository;
 import com.enhancedprojects.enhancedspigot.data.repository.iface.IDataRepository;
 import com.enhancedprojects.enhancedspigot.data.storage.IDataStorage;
+import com.enhancedprojects.enhancedspigot.data.util.DisableLock;
+import com.enhancedprojects.enhancedspigot.data.util.DrainReport;
 import com.enhancedprojects.enhancedspigot.util.SchedulerUtil;
 import org.bukkit.Bukkit;
 import org.bukkit.event.Listener;
 import org.bukkit.plugin.java.JavaPlugin;
 
 public abstract class AbstractDataService<K, V extends AbstractDataEntity<K>> extends Service implements Listener {
+	private static final long DEFAULT_DRAIN_TIMEOUT = 10000L;
+
 	protected DatabaseController databaseController;
 
 	protected IDataStorage<K, V> storage;
@@ -67,6 +71,39 @@ public abstract class AbstractDataService<K, V extends AbstractDataEntity<K>> ex
 		);
 	}
 
+	/**
+	 * Save everything in parallel before closing, instead of saving synchronously with {@link DisableLock}
+	 * Should be called from {@link #close()}, before DatabaseController is closed
+	 *
+	 * @return Drain report or null when repository is not async
+	 */
+	protected DrainReport<K> drain() {
+		return this.drain(this.databaseController == null ?
+			DEFAULT_DRAIN_TIMEOUT :
+			this.databaseController.getOptions()
+				.getDrainTimeoutMillis());
+	}
+
+	/**
+	 * Save everything in parallel before closing
+	 * Keys that weren't saved before timeout are logged
+	 *
+	 * @param timeoutMillis Maximum time to wait
+	 * @return Drain report or null when repository is not async
+	 */
+	protected DrainReport<K> drain(long timeoutMillis) {
+		if (this.saveTask != null) this.saveTask.cancel();
+		if (!(this.repository instanceof IAsyncDataRepository<K, V>)) {
+			this.repository.saveAll();
+			return null;
+		}
+
+		DrainReport<K> report = ((IAsyncDataRepository<K, V>) this.repository).drainAll(timeoutMillis);
+		if (!report.isComplete()) this.plugin.getLogger()
+			.warning("Not everything was saved on shutdown (" + report + "), unsaved keys: " + report.getUnsaved());
+		return report;
+	}
+
 	@Override
 	public abstract void start();
 
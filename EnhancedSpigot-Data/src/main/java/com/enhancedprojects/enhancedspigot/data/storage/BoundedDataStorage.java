@@ -0,0 +1,249 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.enhancedprojects.enhancedspigot.data.storage;
+
+import com.enhancedprojects.enhancedspigot.data.repository.entity.AbstractDataEntity;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.ToIntFunction;
+
+/**
+ * Storage with limited size or weight
+ * The least recently used values are evicted when limits are exceeded, values not accessed for a specified time expire
+ * Returned collections are snapshots
+ */
+public class BoundedDataStorage<K, V extends AbstractDataEntity<K>> implements IEvictingDataStorage<K, V> {
+	private final LinkedHashMap<K, Entry<V>> cache;
+	private final long maximumSize;
+	private final long maximumWeight;
+	private final ToIntFunction<V> weigher;
+	private final long expireAfterAccess;
+
+	private BiConsumer<K, V> evictionListener;
+	private long totalWeight;
+
+	/**
+	 * @param maximumSize       Maximum number of values, 0 to disable
+	 * @param maximumWeight     Maximum total weight of values, 0 to disable
+	 * @param weigher           Weigher of values, every value weights 1 when null
+	 * @param expireAfterAccess Time in milliseconds after which not accessed value expires, 0 to disable
+	 */
+	@Builder
+	public BoundedDataStorage(long maximumSize, long maximumWeight, ToIntFunction<V> weigher, long expireAfterAccess) {
+		this.cache = new LinkedHashMap<>(16, 0.75f, true);
+		this.maximumSize = maximumSize;
+		this.maximumWeight = maximumWeight;
+		this.weigher = weigher;
+		this.expireAfterAccess = expireAfterAccess;
+	}
+
+	@Override
+	public V get(K key) {
+		List<Map.Entry<K, V>> evicted = new ArrayList<>();
+		V value;
+		synchronized (this) {
+			Entry<V> entry = this.cache.get(key);
+			if (entry != null && this.isExpired(entry, System.currentTimeMillis())) {
+				this.removeEntry(key, entry, evicted);
+				entry = null;
+			}
+			if (entry != null) entry.lastAccess = System.currentTimeMillis();
+			value = entry == null ?
+				null :
+				entry.value;
+		}
+		this.notifyEvicted(evicted);
+		return value;
+	}
+
+	@Override
+	public Set<K> keySet() {
+		List<Map.Entry<K, V>> evicted = new ArrayList<>();
+		Set<K> result;
+		synchronized (this) {
+			this.expireEntries(evicted);
+			result = new LinkedHashSet<>(this.cache.keySet());
+		}
+		this.notifyEvicted(evicted);
+		return result;
+	}
+
+	@Override
+	public Collection<V> values() {
+		List<Map.Entry<K, V>> evicted = new ArrayList<>();
+		List<V> result = new ArrayList<>();
+		synchronized (this) {
+			this.expireEntries(evicted);
+			this.cache.values()
+				.forEach(entry -> result.add(entry.value));
+		}
+		this.notifyEvicted(evicted);
+		return result;
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		List<Map.Entry<K, V>> evicted = new ArrayList<>();
+		Set<Map.Entry<K, V>> result = new LinkedHashSet<>();
+		synchronized (this) {
+			this.expireEntries(evicted);
+			this.cache.forEach((key, entry) -> result.add(new AbstractMap.SimpleImmutableEntry<>(key, entry.value)));
+		}
+		this.notifyEvicted(evicted);
+		return result;
+	}
+
+	@Override
+	public void set(K key, V value) {
+		List<Map.Entry<K, V>> evicted = new ArrayList<>();
+		synchronized (this) {
+			Entry<V> entry = new Entry<>(value, this.weigh(value), System.currentTimeMillis());
+			Entry<V> previous = this.cache.put(key, entry);
+			if (previous != null) this.totalWeight -= previous.weight;
+			this.totalWeight += entry.weight;
+
+			this.expireEntries(evicted);
+			this.evictEntries(key, evicted);
+		}
+		this.notifyEvicted(evicted);
+	}
+
+	@Override
+	public synchronized void invalidate(K key) {
+		Entry<V> entry = this.cache.remove(key);
+		if (entry != null) this.totalWeight -= entry.weight;
+	}
+
+	@Override
+	public synchronized void invalidateAll() {
+		this.cache.clear();
+		this.totalWeight = 0;
+	}
+
+	@Override
+	public boolean contains(K key) {
+		List<Map.Entry<K, V>> evicted = new ArrayList<>();
+		boolean result;
+		synchronized (this) {
+			Entry<V> entry = this.cache.get(key);
+			if (entry != null && this.isExpired(entry, System.currentTimeMillis())) {
+				this.removeEntry(key, entry, evicted);
+				entry = null;
+			}
+			result = entry != null;
+		}
+		this.notifyEvicted(evicted);
+		return result;
+	}
+
+	@Override
+	public synchronized void setEvictionListener(BiConsumer<K, V> listener) {
+		this.evictionListener = listener;
+	}
+
+	@Override
+	public void cleanUp() {
+		List<Map.Entry<K, V>> evicted = new ArrayList<>();
+		synchronized (this) {
+			this.expireEntries(evicted);
+		}
+		this.notifyEvicted(evicted);
+	}
+
+	public synchronized int size() {
+		return this.cache.size();
+	}
+
+	public synchronized long getTotalWeight() {
+		return this.totalWeight;
+	}
+
+	private int weigh(V value) {
+		return this.weigher == null ?
+			1 :
+			this.weigher.applyAsInt(value);
+	}
+
+	private boolean isExpired(Entry<V> entry, long now) {
+		return this.expireAfterAccess > 0 && now - entry.lastAccess >= this.expireAfterAccess;
+	}
+
+	private void expireEntries(List<Map.Entry<K, V>> evicted) {
+		if (this.expireAfterAccess <= 0) return;
+		long now = System.currentTimeMillis();
+
+		Iterator<Map.Entry<K, Entry<V>>> iterator = this.cache.entrySet()
+			.iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<K, Entry<V>> mapEntry = iterator.next();
+			if (!this.isExpired(mapEntry.getValue(), now)) break; // Access order, the rest is newer
+			iterator.remove();
+			this.totalWeight -= mapEntry.getValue().weight;
+			evicted.add(new AbstractMap.SimpleImmutableEntry<>(mapEntry.getKey(), mapEntry.getValue().value));
+		}
+	}
+
+	private void evictEntries(K protectedKey, List<Map.Entry<K, V>> evicted) {
+		Iterator<Map.Entry<K, Entry<V>>> iterator = this.cache.entrySet()
+			.iterator();
+		while (iterator.hasNext() && this.exceedsLimits()) {
+			Map.Entry<K, Entry<V>> mapEntry = iterator.next();
+			if (mapEntry.getKey()
+				.equals(protectedKey)) continue;
+			iterator.remove();
+			this.totalWeight -= mapEntry.getValue().weight;
+			evicted.add(new AbstractMap.SimpleImmutableEntry<>(mapEntry.getKey(), mapEntry.getValue().value));
+		}
+	}
+
+	private boolean exceedsLimits() {
+		if (this.maximumSize > 0 && this.cache.size() > this.maximumSize) return true;
+		return this.maximumWeight > 0 && this.totalWeight > this.maximumWeight;
+	}
+
+	private void removeEntry(K key, Entry<V> entry, List<Map.Entry<K, V>> evicted) {
+		this.cache.remove(key);
+		this.totalWeight -= entry.weight;
+		evicted.add(new AbstractMap.SimpleImmutableEntry<>(key, entry.value));
+	}
+
+	private void notifyEvicted(List<Map.Entry<K, V>> evicted) {
+		if (evicted.isEmpty()) return;
+		BiConsumer<K, V> listener;
+		synchronized (this) {
+			listener = this.evictionListener;
+		}
+		if (listener == null) return;
+		evicted.forEach(entry -> listener.accept(entry.getKey(), entry.getValue()));
+	}
+
+	@AllArgsConstructor private static class Entry<V> {
+		private final V value;
+		private final int weight;
+		private long lastAccess;
+	}
+}
@@ -38,4 +38,15 @@ public interface IDataStorage<K, V extends AbstractDataEntity<K>> {
 	void invalidateAll();
 
 	boolean contains(K key);
+
+	/**
+	 * Check if value is kept as entity and returned by {@link #values()}
+	 * Differs from {@link #contains(Object)} only in storages that keep some values in lower tiers
+	 *
+	 * @param key Key of value
+	 * @return true if value is loaded
+	 */
+	default boolean isLoaded(K key) {
+		return this.contains(key);
+	}
 }
@@ -0,0 +1,51 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.enhancedprojects.enhancedspigot.data.storage;
+
+import com.enhancedprojects.enhancedspigot.data.repository.entity.AbstractDataEntity;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * Storage that can drop values by itself
+ * Repository registers eviction listener to save values before they are lost
+ */
+public interface IEvictingDataStorage<K, V extends AbstractDataEntity<K>> extends IDataStorage<K, V> {
+	void setEvictionListener(BiConsumer<K, V> listener); // Called after value was dropped because of storage limits
+
+	void cleanUp(); // Drops expired values
+
+	/**
+	 * Set listener called before value restored from a lower tier is returned
+	 * Used only by storages with more than one tier
+	 *
+	 * @param listener Listener instance
+	 */
+	default void setRestoreListener(BiConsumer<K, V> listener) {
+	}
+
+	/**
+	 * Set function that saves dropped value, storage waits for its future before moving value to a lower tier
+	 * When set, it is used instead of eviction listener
+	 * Used only by storages with more than one tier
+	 *
+	 * @param saver Function completed after save of value finished
+	 */
+	default void setEvictionSaver(BiFunction<K, V, CompletableFuture<Void>> saver) {
+	}
+}
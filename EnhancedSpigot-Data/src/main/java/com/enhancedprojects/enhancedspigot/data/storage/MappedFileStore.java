@@ -0,0 +1,177 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.enhancedprojects.enhancedspigot.data.storage;
+
+import lombok.AllArgsConstructor;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Byte store backed by memory-mapped file with fixed capacity
+ * Data is appended to the file and the space of removed entries is reclaimed by compaction
+ * When there is not enough space, the oldest entries are dropped
+ * File content is discarded when store is opened, so it never outlives the process
+ */
+public class MappedFileStore<K> implements Closeable {
+	private final File file;
+	private final int capacity;
+	private final FileChannel channel;
+	private final MappedByteBuffer buffer;
+	private final LinkedHashMap<K, Slot> index;
+
+	private int position;
+	private long liveBytes;
+
+	public MappedFileStore(File file, int capacity) throws IOException {
+		this.file = file;
+		this.capacity = capacity;
+		this.index = new LinkedHashMap<>();
+
+		File parent = file.getParentFile();
+		if (parent != null) parent.mkdirs();
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		this.buffer = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+	}
+
+	/**
+	 * Store data under key
+	 *
+	 * @param key  Key of data
+	 * @param data Data to store
+	 * @return false when data is larger than the whole store
+	 */
+	public synchronized boolean put(K key, byte[] data) {
+		if (data.length > this.capacity) return false;
+		this.removeSlot(key);
+
+		if (this.position + data.length > this.capacity) {
+			Iterator<Map.Entry<K, Slot>> iterator = this.index.entrySet()
+				.iterator();
+			while (iterator.hasNext() && this.liveBytes + data.length > this.capacity) {
+				this.liveBytes -= iterator.next()
+					.getValue().length;
+				iterator.remove();
+			}
+			this.compact();
+		}
+
+		ByteBuffer target = this.buffer.duplicate();
+		target.position(this.position);
+		target.put(data);
+
+		this.index.put(key, new Slot(this.position, data.length));
+		this.position += data.length;
+		this.liveBytes += data.length;
+		return true;
+	}
+
+	public synchronized byte[] get(K key) {
+		Slot slot = this.index.get(key);
+		return slot == null ?
+			null :
+			this.read(slot);
+	}
+
+	/**
+	 * Remove data stored under key
+	 *
+	 * @param key Key of data
+	 * @return Removed data or null when key was not stored
+	 */
+	public synchronized byte[] remove(K key) {
+		Slot slot = this.index.get(key);
+		if (slot == null) return null;
+		byte[] data = this.read(slot);
+		this.removeSlot(key);
+		return data;
+	}
+
+	public synchronized boolean contains(K key) {
+		return this.index.containsKey(key);
+	}
+
+	public synchronized Set<K> keySet() {
+		return new LinkedHashSet<>(this.index.keySet());
+	}
+
+	public synchronized int size() {
+		return this.index.size();
+	}
+
+	public synchronized void clear() {
+		this.index.clear();
+		this.position = 0;
+		this.liveBytes = 0;
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		this.clear();
+		this.channel.close();
+		this.file.delete();
+	}
+
+	private void removeSlot(K key) {
+		Slot slot = this.index.remove(key);
+		if (slot != null) this.liveBytes -= slot.length;
+	}
+
+	private byte[] read(Slot slot) {
+		byte[] data = new byte[slot.length];
+		ByteBuffer source = this.buffer.duplicate();
+		source.position(slot.offset);
+		source.get(data);
+		return data;
+	}
+
+	private void compact() {
+		List<Map.Entry<K, byte[]>> entries = new ArrayList<>(this.index.size());
+		this.index.forEach((key, slot) -> entries.add(new AbstractMap.SimpleEntry<>(key, this.read(slot))));
+
+		this.index.clear();
+		this.position = 0;
+		this.liveBytes = 0;
+
+		ByteBuffer target = this.buffer.duplicate();
+		for (Map.Entry<K, byte[]> entry : entries) {
+			byte[] data = entry.getValue();
+			target.position(this.position);
+			target.put(data);
+			this.index.put(entry.getKey(), new Slot(this.position, data.length));
+			this.position += data.length;
+			this.liveBytes += data.length;
+		}
+	}
+
+	@AllArgsConstructor private static class Slot {
+		private final int offset;
+		private final int length;
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.enhancedprojects.enhancedspigot.data.storage;
+
+import com.enhancedprojects.enhancedspigot.data.DatabaseController;
+import com.enhancedprojects.enhancedspigot.data.repository.entity.AbstractDataEntity;
+import com.enhancedprojects.enhancedspigot.data.util.EntityBinaryCodec;
+import com.enhancedprojects.enhancedspigot.util.TryCatchUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+
+/**
+ * Two-tier storage
+ * Values evicted from the hot storage are saved by the repository and demoted to the memory-mapped cold storage
+ * Getting demoted value restores it into the hot storage without querying the database
+ * Values are demoted only after their save completed, values that failed to save are not demoted, so restored values never carry unsaved changes
+ * Methods other than get and contains describe only the hot storage
+ */
+public class TieredDataStorage<K, V extends AbstractDataEntity<K>> implements IEvictingDataStorage<K, V> {
+	private final IEvictingDataStorage<K, V> hot;
+	private final MappedFileStore<K> cold;
+	private final EntityBinaryCodec<V> codec;
+
+	private BiConsumer<K, V> evictionListener;
+	private BiFunction<K, V, CompletableFuture<Void>> evictionSaver;
+	private BiConsumer<K, V> restoreListener;
+
+	/**
+	 * @param controller   DatabaseController with registered value entity
+	 * @param hot          Storage for recently used values
+	 * @param keyClass     Class of key
+	 * @param valueClass   Class of value
+	 * @param coldFile     File used by the cold storage
+	 * @param coldCapacity Size of the cold storage in bytes
+	 * @throws IOException when cold storage file cannot be mapped
+	 */
+	public TieredDataStorage(DatabaseController controller, IEvictingDataStorage<K, V> hot, Class<K> keyClass, Class<V> valueClass, File coldFile, int coldCapacity) throws IOException {
+		this.hot = hot;
+		this.cold = new MappedFileStore<>(coldFile, coldCapacity);
+		this.codec = new EntityBinaryCodec<>(controller.getDao(valueClass, keyClass));
+		this.hot.setEvictionListener(this::demote);
+	}
+
+	@Override
+	public V get(K key) {
+		V value = this.hot.get(key);
+		return value == null ?
+			this.restore(key) :
+			value;
+	}
+
+	@Override
+	public Set<K> keySet() {
+		return this.hot.keySet();
+	}
+
+	@Override
+	public Collection<V> values() {
+		return this.hot.values();
+	}
+
+	@Override
+	public Set<Map.Entry<K, V>> entrySet() {
+		return this.hot.entrySet();
+	}
+
+	@Override
+	public void set(K key, V value) {
+		this.cold.remove(key);
+		this.hot.set(key, value);
+	}
+
+	@Override
+	public void invalidate(K key) {
+		this.hot.invalidate(key);
+		this.cold.remove(key);
+	}
+
+	@Override
+	public void invalidateAll() {
+		this.hot.invalidateAll();
+		this.cold.clear();
+	}
+
+	@Override
+	public boolean contains(K key) {
+		return this.hot.contains(key) || this.cold.contains(key);
+	}
+
+	@Override
+	public boolean isLoaded(K key) {
+		return this.hot.contains(key);
+	}
+
+	@Override
+	public void setEvictionListener(BiConsumer<K, V> listener) {
+		this.evictionListener = listener;
+	}
+
+	@Override
+	public void setEvictionSaver(BiFunction<K, V, CompletableFuture<Void>> saver) {
+		this.evictionSaver = saver;
+	}
+
+	@Override
+	public void setRestoreListener(BiConsumer<K, V> listener) {
+		this.restoreListener = listener;
+	}
+
+	@Override
+	public void cleanUp() {
+		this.hot.cleanUp();
+	}
+
+	public boolean isDemoted(K key) {
+		return this.cold.contains(key);
+	}
+
+	public void close() {
+		TryCatchUtil.tryRun(this.cold::close);
+	}
+
+	private void demote(K key, V value) {
+		if (this.evictionSaver != null) {
+			this.evictionSaver.apply(key, value)
+				.thenRun(() -> this.demoteSaved(key, value));
+			return;
+		}
+		if (this.evictionListener != null) this.evictionListener.accept(key, value);
+		this.demoteSaved(key, value);
+	}
+
+	private synchronized void demoteSaved(K key, V value) {
+		// Save failed, so the next get loads the row again instead of the unsaved value
+		if (value.hasUnsavedChanges()) return;
+		// Value was loaded again while it was saved
+		if (this.hot.contains(key)) return;
+		byte[] data = TryCatchUtil.tryAndReturn(() -> this.codec.encode(value));
+		if (data != null) this.cold.put(key, data);
+	}
+
+	private synchronized V restore(K key) {
+		V value = this.hot.get(key);
+		if (value != null) return value;
+
+		byte[] data = this.cold.remove(key);
+		if (data == null) return null;
+
+		value = TryCatchUtil.tryAndReturn(() -> this.codec.decode(data));
+		if (value == null) return null;
+		if (this.restoreListener != null) this.restoreListener.accept(key, value);
+		this.hot.set(key, value);
+		return value;
+	}
+}
@@ -0,0 +1,44 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.sync;
+
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@DatabaseTable(tableName = "enhancedspigot_change_log") @NoArgsConstructor @Getter @Setter public class ChangeLogEntity {
+	@DatabaseField(generatedId = true) long id;
+	@DatabaseField(width = 36) String nodeId;
+	@DatabaseField(columnName = "tableName", index = true) String table;
+	@DatabaseField(columnName = "rowKey") String key;
+	@DatabaseField ChangeType type;
+	@DatabaseField(index = true) long created;
+
+	public ChangeLogEntity(InvalidationMessage message) {
+		this.nodeId = message.getNodeId();
+		this.table = message.getTable();
+		this.key = message.getKey();
+		this.type = message.getType();
+		this.created = System.currentTimeMillis();
+	}
+
+	public InvalidationMessage toMessage() {
+		return new InvalidationMessage(this.nodeId, this.table, this.key, this.type);
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.sync;
+
+import com.enhancedprojects.enhancedspigot.data.DatabaseController;
+import com.enhancedprojects.enhancedspigot.util.SchedulerUtil;
+import com.enhancedprojects.enhancedspigot.util.TryCatchUtil;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.stmt.DeleteBuilder;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+/**
+ * Transport that shares messages through change log table of the shared database
+ * Every poll writes waiting messages in one batch and reads rows added since the previous poll
+ * Ids are assigned on insert, but rows become visible on commit, so a window of recent ids is read again to catch rows committed late
+ * Delivery is best-effort, row committed after its id left that window is not received
+ * Rows older than retention are removed, so the table stays small
+ */
+public class DatabasePollingInvalidationTransport implements IInvalidationTransport {
+	private static final long ROWS_PER_POLL = 500L;
+	private static final int POLLS_PER_CLEANUP = 100;
+	private static final long REREAD_IDS = 100L;
+	private static final long CLOSE_TIMEOUT_MILLIS = 5000L;
+
+	private final DatabaseController controller;
+	private final JavaPlugin plugin;
+	private final long pollTicks;
+	private final long retentionMillis;
+	private final Queue<InvalidationMessage> outgoing = new ConcurrentLinkedQueue<>();
+	private final ReentrantLock pollLock = new ReentrantLock();
+	/**
+	 * Ids received inside re-read window, so rows read again are not delivered twice
+	 */
+	private final TreeSet<Long> receivedIds = new TreeSet<>();
+
+	private Dao<ChangeLogEntity, Long> dao;
+	private Consumer<InvalidationMessage> receiver;
+	private SchedulerUtil.Task task;
+	/**
+	 * Highest id that existed on start, rows up to it are never delivered
+	 */
+	private long startId;
+	private long lastId;
+	private int polls;
+
+	/**
+	 * @param controller      DatabaseController instance
+	 * @param plugin          Plugin instance
+	 * @param pollTicks       Ticks between polls
+	 * @param retentionMillis Milliseconds for which rows are kept in change log
+	 */
+	public DatabasePollingInvalidationTransport(DatabaseController controller, JavaPlugin plugin, long pollTicks, long retentionMillis) {
+		this.controller = controller;
+		this.plugin = plugin;
+		this.pollTicks = Math.max(1L, pollTicks);
+		this.retentionMillis = retentionMillis;
+	}
+
+	@Override
+	public void start(Consumer<InvalidationMessage> receiver) {
+		this.receiver = receiver;
+		this.controller.registerEntity(ChangeLogEntity.class);
+		this.dao = this.controller.getDao(ChangeLogEntity.class, Long.class);
+		if (this.dao == null) {
+			this.plugin.getLogger()
+				.warning("Cannot create change log table, changes of other servers won't be received");
+			return;
+		}
+
+		// Only changes made after start are interesting, older ones are already in database
+		this.lastId = TryCatchUtil.tryOrDefault(
+			() -> {
+				ChangeLogEntity last = this.dao.queryBuilder()
+					.orderBy("id", false)
+					.limit(1L)
+					.queryForFirst();
+				return last == null ?
+					0L :
+					last.getId();
+			}, 0L
+		);
+		this.startId = this.lastId;
+		this.task = SchedulerUtil.runTaskTimerAsynchronously(this.plugin, this::poll, this.pollTicks, this.pollTicks);
+	}
+
+	@Override
+	public void publish(InvalidationMessage message) {
+		this.outgoing.add(message);
+	}
+
+	@Override
+	public void close() {
+		if (this.task != null) this.task.cancel();
+		this.task = null;
+		// Waits for running poll, so outgoing messages are not lost
+		boolean locked = false;
+		try {
+			locked = this.pollLock.tryLock(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				.interrupt();
+		}
+		if (!locked) this.plugin.getLogger()
+			.warning("Change log poll did not finish in time, changes it was publishing may be lost");
+		try {
+			this.writeOutgoing();
+		} finally {
+			if (locked) this.pollLock.unlock();
+		}
+	}
+
+	private void poll() {
+		if (!this.pollLock.tryLock()) return;
+		try {
+			this.writeOutgoing();
+			this.readIncoming();
+			if (++this.polls % POLLS_PER_CLEANUP == 0) this.removeOld();
+		} finally {
+			this.pollLock.unlock();
+		}
+	}
+
+	private void writeOutgoing() {
+		if (this.dao == null || this.outgoing.isEmpty()) return;
+		List<ChangeLogEntity> entries = new ArrayList<>();
+		InvalidationMessage message;
+		while ((message = this.outgoing.poll()) != null) {
+			entries.add(new ChangeLogEntity(message));
+		}
+
+		TryCatchUtil.tryRun(
+			() -> this.dao.create(entries), (ex) -> this.plugin.getLogger()
+				.log(Level.WARNING, "Cannot publish " + entries.size() + " changes to other servers", ex)
+		);
+	}
+
+	private void readIncoming() {
+		long from = Math.max(this.startId, this.lastId - REREAD_IDS);
+		List<ChangeLogEntity> entries = TryCatchUtil.tryOrDefault(
+			() -> this.dao.queryBuilder()
+				.orderBy("id", true)
+				.limit(ROWS_PER_POLL + REREAD_IDS)
+				.where()
+				.gt("id", from)
+				.query(), new ArrayList<ChangeLogEntity>()
+		);
+		entries.forEach(entry -> {
+			if (!this.receivedIds.add(entry.getId())) return;
+			this.lastId = Math.max(this.lastId, entry.getId());
+			TryCatchUtil.tryRun(() -> this.receiver.accept(entry.toMessage()));
+		});
+		this.receivedIds.headSet(this.lastId - REREAD_IDS, true)
+			.clear();
+	}
+
+	private void removeOld() {
+		long before = System.currentTimeMillis() - this.retentionMillis;
+		TryCatchUtil.tryRun(() -> {
+			DeleteBuilder<ChangeLogEntity, Long> delete = this.dao.deleteBuilder();
+			delete.where()
+				.lt("created", before);
+			delete.delete();
+		});
+	}
+}
@@ -0,0 +1,27 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.sync;
+
+import java.util.function.Consumer;
+
+public interface IInvalidationTransport {
+	void start(Consumer<InvalidationMessage> receiver); // Start delivering messages of all nodes, own messages can be delivered too
+
+	void publish(InvalidationMessage message);
+
+	void close(); // Deliver messages that are still waiting and stop
+}
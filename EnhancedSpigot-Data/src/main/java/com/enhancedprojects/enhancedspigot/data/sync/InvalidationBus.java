@@ -0,0 +1,83 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.sync;
+
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Sends changes committed by this node to other nodes and applies their changes to local repositories
+ * Repositories are registered by table name, messages of this node are ignored when received
+ */
+public class InvalidationBus {
+	@Getter private final String nodeId;
+	private final IInvalidationTransport transport;
+	private final Map<String, Consumer<InvalidationMessage>> listeners = new ConcurrentHashMap<>();
+
+	public InvalidationBus(IInvalidationTransport transport) {
+		this(
+			UUID.randomUUID()
+				.toString(), transport
+		);
+	}
+
+	public InvalidationBus(String nodeId, IInvalidationTransport transport) {
+		this.nodeId = nodeId;
+		this.transport = transport;
+		this.transport.start(this::receive);
+	}
+
+	/**
+	 * Register listener of changes made by other nodes
+	 *
+	 * @param table    Name of table
+	 * @param listener Listener of changes
+	 */
+	public void register(String table, Consumer<InvalidationMessage> listener) {
+		this.listeners.put(table, listener);
+	}
+
+	public void unregister(String table) {
+		this.listeners.remove(table);
+	}
+
+	/**
+	 * Publish committed change
+	 *
+	 * @param table Name of table
+	 * @param key   Key of changed row, null when type is {@link ChangeType#CLEAR}
+	 * @param type  Type of change
+	 */
+	public void publish(String table, String key, ChangeType type) {
+		this.transport.publish(new InvalidationMessage(this.nodeId, table, key, type));
+	}
+
+	public void close() {
+		this.transport.close();
+		this.listeners.clear();
+	}
+
+	private void receive(InvalidationMessage message) {
+		if (this.nodeId.equals(message.getNodeId())) return;
+		Consumer<InvalidationMessage> listener = this.listeners.get(message.getTable());
+		if (listener != null) listener.accept(message);
+	}
+}
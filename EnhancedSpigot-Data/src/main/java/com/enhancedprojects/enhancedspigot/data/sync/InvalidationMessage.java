@@ -0,0 +1,33 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.sync;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+/**
+ * Change of one row committed by some node
+ */
+@Getter @AllArgsConstructor public class InvalidationMessage {
+	private final String nodeId;
+	private final String table;
+	/**
+	 * Key converted to string, null when type is {@link ChangeType#CLEAR}
+	 */
+	private final String key;
+	private final ChangeType type;
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.sync;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.function.Consumer;
+
+/**
+ * Transport that delivers messages to all transports of the same channel in this process
+ * Messages are delivered synchronously on publishing thread
+ */
+public class LoopbackInvalidationTransport implements IInvalidationTransport {
+	private static final Map<String, Set<LoopbackInvalidationTransport>> CHANNELS = new ConcurrentHashMap<>();
+
+	private final String channel;
+	private volatile Consumer<InvalidationMessage> receiver;
+
+	public LoopbackInvalidationTransport() {
+		this("default");
+	}
+
+	public LoopbackInvalidationTransport(String channel) {
+		this.channel = channel;
+	}
+
+	@Override
+	public void start(Consumer<InvalidationMessage> receiver) {
+		this.receiver = receiver;
+		CHANNELS.computeIfAbsent(this.channel, c -> new CopyOnWriteArraySet<>())
+			.add(this);
+	}
+
+	@Override
+	public void publish(InvalidationMessage message) {
+		Set<LoopbackInvalidationTransport> transports = CHANNELS.get(this.channel);
+		if (transports == null) return;
+		transports.forEach(transport -> {
+			Consumer<InvalidationMessage> receiver = transport.receiver;
+			if (receiver != null) receiver.accept(message);
+		});
+	}
+
+	@Override
+	public void close() {
+		CHANNELS.computeIfPresent(
+			this.channel, (c, transports) -> {
+				transports.remove(this);
+				return transports.isEmpty() ?
+					null :
+					transports;
+			}
+		);
+		this.receiver = null;
+	}
+}
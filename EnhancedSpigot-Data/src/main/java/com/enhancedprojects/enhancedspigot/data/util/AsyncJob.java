@@ -16,18 +16,53 @@
 
 package com.enhancedprojects.enhancedspigot.data.util;
 
-import lombok.AllArgsConstructor;
 import lombok.Getter;
 
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Supplier;
 
-@AllArgsConstructor public class AsyncJob<V> implements Runnable, Comparable<AsyncJob<?>>, CompletableFuture.AsynchronousCompletionTask {
+public class AsyncJob<V> implements Runnable, Comparable<AsyncJob<?>>, CompletableFuture.AsynchronousCompletionTask {
+	private static final AtomicLong SEQUENCE = new AtomicLong();
 
 	@Getter private final Integer priority;
 	@Getter private final Long operationId;
 	private final Supplier<V> supplier;
 	private final CompletableFuture<V> future;
+	/**
+	 * Order of creation, keeps jobs with the same priority FIFO
+	 */
+	@Getter private final long sequence;
+	/**
+	 * Creation time from {@link System#nanoTime()}
+	 */
+	@Getter private final long createdAt;
+
+	public AsyncJob(Integer priority, Long operationId, Supplier<V> supplier, CompletableFuture<V> future) {
+		this.priority = priority;
+		this.operationId = operationId;
+		this.supplier = supplier;
+		this.future = future;
+		this.sequence = SEQUENCE.getAndIncrement();
+		this.createdAt = System.nanoTime();
+	}
+
+	/**
+	 * Create job that takes place of source job in queue
+	 * Priority, sequence and creation time are copied, so time that source job already waited still counts
+	 *
+	 * @param source   Job that is replaced
+	 * @param supplier Supplier of result
+	 * @param future   Future completed with result
+	 */
+	public AsyncJob(AsyncJob<?> source, Supplier<V> supplier, CompletableFuture<V> future) {
+		this.priority = source.priority;
+		this.operationId = source.operationId;
+		this.supplier = supplier;
+		this.future = future;
+		this.sequence = source.sequence;
+		this.createdAt = source.createdAt;
+	}
 
 	@Override
 	public void run() {
@@ -43,6 +78,6 @@ import java.util.function.Supplier;
 		int priorityComp = -priority.compareTo(o.priority);
 		return priorityComp != 0 ?
 			priorityComp :
-			this.operationId.compareTo(o.operationId);
+			Long.compare(this.sequence, o.sequence);
 	}
 }
\ No newline at end of file
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.util;
+
+import lombok.Getter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Executor that starts new thread for every job, used with virtual threads
+ * Number of running jobs is limited by semaphore, waiting jobs are taken from queue in its order
+ */
+public class BoundedThreadExecutor extends AbstractExecutorService {
+	private final ThreadFactory factory;
+	@Getter private final BlockingQueue<Runnable> queue;
+	@Getter private final int maxConcurrency;
+	private final Semaphore permits;
+	private volatile boolean shutdown;
+
+	/**
+	 * @param factory        Factory of threads
+	 * @param queue          Queue of waiting jobs
+	 * @param maxConcurrency Maximum number of jobs running at once
+	 */
+	public BoundedThreadExecutor(ThreadFactory factory, BlockingQueue<Runnable> queue, int maxConcurrency) {
+		this.factory = factory;
+		this.queue = queue;
+		this.maxConcurrency = Math.max(1, maxConcurrency);
+		this.permits = new Semaphore(this.maxConcurrency);
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		if (this.shutdown) throw new RejectedExecutionException("Executor is shut down");
+		this.queue.offer(command);
+		this.drain();
+	}
+
+	private void drain() {
+		while (!this.queue.isEmpty()) {
+			if (!this.permits.tryAcquire()) return;
+			Runnable job = this.queue.poll();
+			if (job == null) {
+				this.permits.release();
+				continue;
+			}
+
+			try {
+				this.factory.newThread(() -> {
+						try {
+							job.run();
+						} finally {
+							this.permits.release();
+							this.drain();
+						}
+					})
+					.start();
+			} catch (Throwable t) {
+				this.permits.release();
+				throw t;
+			}
+		}
+	}
+
+	public int getActiveCount() {
+		return this.maxConcurrency - this.permits.availablePermits();
+	}
+
+	@Override
+	public void shutdown() {
+		this.shutdown = true;
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		this.shutdown = true;
+		List<Runnable> remaining = new ArrayList<>();
+		this.queue.drainTo(remaining);
+		return remaining;
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return this.shutdown;
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return this.shutdown && this.queue.isEmpty() && this.getActiveCount() == 0;
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		while (!this.isTerminated()) {
+			if (System.nanoTime() >= deadline) return false;
+			Thread.sleep(10L);
+		}
+		return true;
+	}
+}
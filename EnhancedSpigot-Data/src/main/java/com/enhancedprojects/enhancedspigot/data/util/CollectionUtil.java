@@ -19,7 +19,9 @@ package com.enhancedprojects.enhancedspigot.data.util;
 import com.google.gson.reflect.TypeToken;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 public class CollectionUtil {
@@ -89,4 +91,26 @@ public class CollectionUtil {
 
 		return new Type[]{TypeToken.getParameterized(Class.forName(elements[idx]), getTypesFromString(elements, ++idx)).getType()};
 	}
+
+	/**
+	 * Split collection into lists with maximum specified size
+	 *
+	 * @param collection Collection to split
+	 * @param size       Maximum size of one part
+	 * @return List of parts in iteration order
+	 */
+	public static <T> List<List<T>> partition(Collection<T> collection, int size) {
+		if (size < 1) throw new IllegalArgumentException("Size must be greater than 0");
+
+		List<List<T>> result = new ArrayList<>();
+		List<T> current = new ArrayList<>(Math.min(size, collection.size()));
+		for (T element : collection) {
+			current.add(element);
+			if (current.size() < size) continue;
+			result.add(current);
+			current = new ArrayList<>(size);
+		}
+		if (!current.isEmpty()) result.add(current);
+		return result;
+	}
 }
\ No newline at end of file
@@ -20,6 +20,7 @@ public class DisableLock {
 	/**
 	 * Disable lock for async savable cache
 	 * Set to true when disabling plugin
+	 * Leave it false when services drain their repositories on shutdown, drain needs running executors
 	 */
 	public static boolean IS_LOCKED = false;
 }
@@ -0,0 +1,49 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.util;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.Set;
+
+/**
+ * Result of saving everything from repository on shutdown
+ *
+ * @param <K> Type of keys
+ */
+@Getter @AllArgsConstructor public class DrainReport<K> {
+	private final String repository;
+	private final int submittedJobs;
+	private final long elapsedMillis;
+	private final boolean timedOut;
+	/**
+	 * Keys of values that were still modified or had pending changes when drain ended
+	 */
+	private final Set<K> unsaved;
+
+	public boolean isComplete() {
+		return !this.timedOut && this.unsaved.isEmpty();
+	}
+
+	@Override
+	public String toString() {
+		return this.repository + ": jobs=" + this.submittedJobs + ", unsaved=" + this.unsaved.size() + ", elapsed=" + this.elapsedMillis + "ms" + (this.timedOut ?
+			", timed out" :
+			"");
+	}
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.enhancedprojects.enhancedspigot.data.util;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.table.TableInfo;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.UUID;
+
+/**
+ * Compact binary form of entity columns
+ * Simple values are written directly, other values are written after conversion by their OrmLite persister
+ * Foreign collections are not written, they are rebuilt as OrmLite collections when decoding
+ */
+public class EntityBinaryCodec<T> {
+	private static final byte NULL = 0;
+	private static final byte STRING = 1;
+	private static final byte INTEGER = 2;
+	private static final byte LONG = 3;
+	private static final byte DOUBLE = 4;
+	private static final byte FLOAT = 5;
+	private static final byte BOOLEAN = 6;
+	private static final byte SHORT = 7;
+	private static final byte BYTE = 8;
+	private static final byte CHARACTER = 9;
+	private static final byte BYTES = 10;
+	private static final byte UUID_VALUE = 11;
+	private static final byte DATE = 12;
+	private static final byte ENUM = 13;
+	private static final byte BIG_DECIMAL = 14;
+	private static final byte CONVERTED = 15;
+
+	private final Dao<T, ?> dao;
+	private final TableInfo<T, ?> tableInfo;
+
+	public EntityBinaryCodec(Dao<T, ?> dao) {
+		this.dao = dao;
+		this.tableInfo = EntityColumnUtil.getTableInfo(dao);
+		if (this.tableInfo == null) throw new IllegalArgumentException("Dao must extend BaseDaoImpl");
+	}
+
+	public Class<T> getDataClass() {
+		return this.dao.getDataClass();
+	}
+
+	public byte[] encode(T entity) throws SQLException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			FieldType[] fieldTypes = this.tableInfo.getFieldTypes();
+			out.writeShort(fieldTypes.length);
+			for (FieldType fieldType : fieldTypes) {
+				if (fieldType.isForeignCollection()) {
+					out.writeByte(NULL);
+					continue;
+				}
+				this.writeValue(out, fieldType, fieldType.extractJavaFieldValue(entity));
+			}
+		} catch (IOException e) {
+			throw new SQLException("Cannot encode " + this.getDataClass()
+				.getName(), e);
+		}
+		return bytes.toByteArray();
+	}
+
+	public T decode(byte[] data) throws SQLException {
+		T entity = this.dao.createObjectInstance();
+		FieldType[] fieldTypes = this.tableInfo.getFieldTypes();
+
+		try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+			if (in.readShort() != fieldTypes.length) throw new SQLException("Encoded columns don't match " + this.getDataClass()
+				.getName());
+			for (int i = 0; i < fieldTypes.length; i++) {
+				Object value = this.readValue(in, fieldTypes[i], i);
+				if (fieldTypes[i].isForeignCollection()) continue;
+				fieldTypes[i].assignField(this.dao.getConnectionSource(), entity, value, false, null);
+			}
+		} catch (IOException e) {
+			throw new SQLException("Cannot decode " + this.getDataClass()
+				.getName(), e);
+		}
+
+		Object id = this.tableInfo.getIdField()
+			.extractJavaFieldValue(entity);
+		for (FieldType fieldType : fieldTypes) {
+			if (!fieldType.isForeignCollection()) continue;
+			fieldType.assignField(this.dao.getConnectionSource(), entity, fieldType.buildForeignCollection(entity, id), false, null);
+		}
+		return entity;
+	}
+
+	private void writeValue(DataOutputStream out, FieldType fieldType, Object value) throws IOException, SQLException {
+		if (value == null) {
+			out.writeByte(NULL);
+		} else if (value instanceof String) {
+			out.writeByte(STRING);
+			this.writeBytes(out, ((String) value).getBytes(StandardCharsets.UTF_8));
+		} else if (value instanceof Integer) {
+			out.writeByte(INTEGER);
+			out.writeInt((Integer) value);
+		} else if (value instanceof Long) {
+			out.writeByte(LONG);
+			out.writeLong((Long) value);
+		} else if (value instanceof Double) {
+			out.writeByte(DOUBLE);
+			out.writeDouble((Double) value);
+		} else if (value instanceof Float) {
+			out.writeByte(FLOAT);
+			out.writeFloat((Float) value);
+		} else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN);
+			out.writeBoolean((Boolean) value);
+		} else if (value instanceof Short) {
+			out.writeByte(SHORT);
+			out.writeShort((Short) value);
+		} else if (value instanceof Byte) {
+			out.writeByte(BYTE);
+			out.writeByte((Byte) value);
+		} else if (value instanceof Character) {
+			out.writeByte(CHARACTER);
+			out.writeChar((Character) value);
+		} else if (value instanceof byte[]) {
+			out.writeByte(BYTES);
+			this.writeBytes(out, (byte[]) value);
+		} else if (value instanceof UUID) {
+			out.writeByte(UUID_VALUE);
+			out.writeLong(((UUID) value).getMostSignificantBits());
+			out.writeLong(((UUID) value).getLeastSignificantBits());
+		} else if (value instanceof Date) {
+			out.writeByte(DATE);
+			out.writeLong(((Date) value).getTime());
+		} else if (value instanceof Enum) {
+			out.writeByte(ENUM);
+			this.writeBytes(out, ((Enum<?>) value).name()
+				.getBytes(StandardCharsets.UTF_8));
+		} else if (value instanceof BigDecimal) {
+			out.writeByte(BIG_DECIMAL);
+			this.writeBytes(out, value.toString()
+				.getBytes(StandardCharsets.UTF_8));
+		} else if (fieldType != null) {
+			Object converted = fieldType.convertJavaFieldToSqlArgValue(value);
+			if (converted != null && converted.getClass() == value.getClass()) throw new SQLException("Unsupported column type " + value.getClass()
+				.getName());
+			out.writeByte(CONVERTED);
+			this.writeValue(out, null, converted);
+		} else {
+			throw new SQLException("Unsupported column type " + value.getClass()
+				.getName());
+		}
+	}
+
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private Object readValue(DataInputStream in, FieldType fieldType, int columnPos) throws IOException, SQLException {
+		byte type = in.readByte();
+		switch (type) {
+			case NULL:
+				return null;
+			case STRING:
+				return new String(this.readBytes(in), StandardCharsets.UTF_8);
+			case INTEGER:
+				return in.readInt();
+			case LONG:
+				return in.readLong();
+			case DOUBLE:
+				return in.readDouble();
+			case FLOAT:
+				return in.readFloat();
+			case BOOLEAN:
+				return in.readBoolean();
+			case SHORT:
+				return in.readShort();
+			case BYTE:
+				return in.readByte();
+			case CHARACTER:
+				return in.readChar();
+			case BYTES:
+				return this.readBytes(in);
+			case UUID_VALUE:
+				return new UUID(in.readLong(), in.readLong());
+			case DATE:
+				return new Date(in.readLong());
+			case ENUM:
+				return Enum.valueOf((Class<? extends Enum>) fieldType.getType(), new String(this.readBytes(in), StandardCharsets.UTF_8));
+			case BIG_DECIMAL:
+				return new BigDecimal(new String(this.readBytes(in), StandardCharsets.UTF_8));
+			case CONVERTED:
+				Object sqlArg = this.readValue(in, null, columnPos);
+				return sqlArg == null ?
+					null :
+					fieldType.getDataPersister()
+						.sqlArgToJava(fieldType, sqlArg, columnPos);
+			default:
+				throw new SQLException("Unknown value type " + type);
+		}
+	}
+
+	private void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private byte[] readBytes(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readInt()];
+		in.readFully(bytes);
+		return bytes;
+	}
+}
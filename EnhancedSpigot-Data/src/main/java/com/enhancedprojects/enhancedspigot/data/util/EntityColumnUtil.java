@@ -0,0 +1,97 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.enhancedprojects.enhancedspigot.data.util;
+
+import com.j256.ormlite.dao.BaseDaoImpl;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.field.FieldType;
+import com.j256.ormlite.table.TableInfo;
+
+import java.sql.SQLException;
+
+public class EntityColumnUtil {
+	/**
+	 * Get table info of dao
+	 *
+	 * @param dao Dao instance
+	 * @return Table info or null when dao is not based on BaseDaoImpl
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T, ID> TableInfo<T, ID> getTableInfo(Dao<T, ID> dao) {
+		if (!(dao instanceof BaseDaoImpl)) return null;
+		return ((BaseDaoImpl<T, ID>) dao).getTableInfo();
+	}
+
+	/**
+	 * Get name of id column
+	 *
+	 * @param dao Dao instance
+	 * @return Column name or null when dao is not based on BaseDaoImpl or table has no id
+	 */
+	public static String getIdColumnName(Dao<?, ?> dao) {
+		TableInfo<?, ?> tableInfo = getTableInfo(dao);
+		if (tableInfo == null || tableInfo.getIdField() == null) return null;
+		return tableInfo.getIdField()
+			.getColumnName();
+	}
+
+	/**
+	 * Get field marked with version = true, used for optimistic locking
+	 *
+	 * @param tableInfo Table info of entity
+	 * @return Version field or null when entity is not versioned
+	 */
+	public static FieldType getVersionField(TableInfo<?, ?> tableInfo) {
+		for (FieldType fieldType : tableInfo.getFieldTypes()) {
+			if (fieldType.isVersion()) return fieldType;
+		}
+		return null;
+	}
+
+	/**
+	 * Get foreign field that points to parent class
+	 *
+	 * @param tableInfo   Table info of child entity
+	 * @param parentClass Class of parent entity
+	 * @return Foreign field or null when child has no field of parent type
+	 */
+	public static FieldType getForeignField(TableInfo<?, ?> tableInfo, Class<?> parentClass) {
+		for (FieldType fieldType : tableInfo.getFieldTypes()) {
+			if (fieldType.isForeign() && fieldType.getType()
+				.isAssignableFrom(parentClass)) return fieldType;
+		}
+		return null;
+	}
+
+	/**
+	 * Get values of all columns converted to SQL arguments
+	 * Values are ordered like fields from {@link TableInfo#getFieldTypes()}, foreign collections are always null
+	 *
+	 * @param tableInfo Table info of entity
+	 * @param entity    Entity instance
+	 * @return Array with column values
+	 * @throws SQLException when column cannot be converted
+	 */
+	public static Object[] snapshot(TableInfo<?, ?> tableInfo, Object entity) throws SQLException {
+		FieldType[] fieldTypes = tableInfo.getFieldTypes();
+		Object[] result = new Object[fieldTypes.length];
+		for (int i = 0; i < fieldTypes.length; i++) {
+			if (fieldTypes[i].isForeignCollection()) continue;
+			result[i] = fieldTypes[i].extractJavaFieldToSqlArgValue(entity);
+		}
+		return result;
+	}
+}
@@ -0,0 +1,170 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.util;
+
+import lombok.Getter;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Answers whether key can exist in database without querying it
+ * Bloom filter of all keys answers "definitely missing" for keys that were never added
+ * Negative cache remembers keys that were not found or were removed, for short time
+ * Filter knows only about keys written through its owner, so it should be used only when other servers don't create rows or when changes of other servers are reported to it
+ *
+ * @param <K> Type of keys
+ */
+public class KeyPresenceFilter<K> {
+	private static final int MAX_NEGATIVE_ENTRIES = 100_000;
+
+	private final int bitCount;
+	private final int hashCount;
+	private final long negativeTtlMillis;
+	private final Map<K, Long> negative = new ConcurrentHashMap<>();
+	private final AtomicLongArray bits;
+	/**
+	 * Adds share the read lock, clear takes the write lock, so bits of key added during clear are not lost
+	 */
+	private final ReadWriteLock clearLock = new ReentrantReadWriteLock();
+	/**
+	 * Bloom filter is used only after all existing keys were added
+	 */
+	@Getter private volatile boolean ready;
+
+	/**
+	 * @param expectedKeys      Expected number of keys in table
+	 * @param falsePositiveRate Wanted rate of keys that are reported as existing while they don't
+	 * @param negativeTtlMillis Milliseconds for which missing key is remembered
+	 */
+	public KeyPresenceFilter(long expectedKeys, double falsePositiveRate, long negativeTtlMillis) {
+		long keys = Math.max(1024L, expectedKeys);
+		double rate = Math.min(0.5D, Math.max(1e-6D, falsePositiveRate));
+		long bitCount = (long) Math.ceil(-keys * Math.log(rate) / (Math.log(2) * Math.log(2)));
+		this.bitCount = (int) Math.min(Integer.MAX_VALUE - 63L, Math.max(64L, bitCount));
+		this.hashCount = Math.max(1, (int) Math.round((double) this.bitCount / keys * Math.log(2)));
+		this.negativeTtlMillis = negativeTtlMillis;
+		this.bits = new AtomicLongArray((this.bitCount + 63) / 64);
+	}
+
+	/**
+	 * Mark that all existing keys were added
+	 */
+	public void setReady() {
+		this.ready = true;
+	}
+
+	/**
+	 * @param key Key
+	 * @return false when key definitely doesn't exist
+	 */
+	public boolean mightContain(K key) {
+		Long expiresAt = this.negative.get(key);
+		if (expiresAt != null) {
+			if (expiresAt > System.currentTimeMillis()) return false;
+			this.negative.remove(key, expiresAt);
+		}
+		if (!this.ready) return true;
+
+		long hash = hash(key);
+		for (int i = 0; i < this.hashCount; i++) {
+			int index = this.index(hash, i);
+			if ((this.bits.get(index >>> 6) & (1L << index)) == 0L) return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Report key that was created or found in database
+	 */
+	public void add(K key) {
+		this.negative.remove(key);
+		long hash = hash(key);
+		this.clearLock.readLock()
+			.lock();
+		try {
+			for (int i = 0; i < this.hashCount; i++) {
+				int index = this.index(hash, i);
+				long mask = 1L << index;
+				long word;
+				do {
+					word = this.bits.get(index >>> 6);
+					if ((word & mask) != 0L) break;
+				} while (!this.bits.compareAndSet(index >>> 6, word, word | mask));
+			}
+		} finally {
+			this.clearLock.readLock()
+				.unlock();
+		}
+	}
+
+	/**
+	 * Report key that was not found or was removed from database
+	 */
+	public void markMissing(K key) {
+		if (this.negativeTtlMillis <= 0L) return;
+		long now = System.currentTimeMillis();
+		if (this.negative.size() >= MAX_NEGATIVE_ENTRIES) {
+			this.negative.values()
+				.removeIf(expiresAt -> expiresAt <= now);
+			if (this.negative.size() >= MAX_NEGATIVE_ENTRIES) this.negative.clear();
+		}
+		this.negative.put(key, now + this.negativeTtlMillis);
+	}
+
+	/**
+	 * Report that all keys were removed from database
+	 * Bits are cleared in place, keys added while clearing wait for it and stay in filter
+	 */
+	public void clear() {
+		this.negative.clear();
+		this.clearLock.writeLock()
+			.lock();
+		try {
+			for (int i = 0; i < this.bits.length(); i++) {
+				this.bits.set(i, 0L);
+			}
+		} finally {
+			this.clearLock.writeLock()
+				.unlock();
+		}
+	}
+
+	/**
+	 * Position of i-th bit of key, computed by double hashing
+	 */
+	private int index(long hash, int i) {
+		int first = (int) hash;
+		int second = (int) (hash >>> 32);
+		return ((first + i * second) & Integer.MAX_VALUE) % this.bitCount;
+	}
+
+	private static long hash(Object key) {
+		long hash = key == null ?
+			0L :
+			key.hashCode();
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.util;
+
+import lombok.Getter;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Executor that runs jobs of the same key in submission order
+ * Keys are striped into lanes, only the head job of every lane is submitted to the pool
+ * so jobs of different lanes still run in parallel and keep their {@link AsyncJob} priority and age
+ * Job of more keys waits until it is the head of lanes of all its keys and holds all of them while it runs
+ * Jobs submitted by {@link #execute(Runnable)} don't use lanes, so they are not ordered with keyed jobs
+ */
+public class KeyedPriorityExecutor extends AbstractExecutorService {
+	@Getter private final ExecutorService delegate;
+	private final Lane[] lanes;
+	/**
+	 * Jobs of more keys are added to their lanes one at a time, so every lane holds them in the same order
+	 */
+	private final Object multiLaneLock = new Object();
+
+	/**
+	 * @param delegate Pool that runs jobs, its queue should be a PriorityBlockingQueue
+	 * @param lanes    Number of lanes that keys are striped into
+	 */
+	public KeyedPriorityExecutor(ExecutorService delegate, int lanes) {
+		this.delegate = delegate;
+		this.lanes = new Lane[Math.max(1, lanes)];
+		for (int i = 0; i < this.lanes.length; i++) {
+			this.lanes[i] = new Lane();
+		}
+	}
+
+	/**
+	 * Run job after all jobs that were submitted earlier with key of the same lane
+	 *
+	 * @param key     Key of job
+	 * @param command Job
+	 */
+	public void execute(Object key, Runnable command) {
+		Lane lane = this.getLane(key);
+		boolean idle;
+		synchronized (lane) {
+			lane.queue.add(command);
+			idle = !lane.running;
+			lane.running = true;
+		}
+		if (idle) this.dispatch(lane);
+	}
+
+	/**
+	 * Run job after all jobs that were submitted earlier with keys of the same lanes
+	 * Jobs submitted later with any of the keys wait until this job completes
+	 *
+	 * @param keys    Keys of job
+	 * @param command Job
+	 */
+	public void execute(Collection<?> keys, Runnable command) {
+		Lane[] lanes = keys.stream()
+			.map(this::getLane)
+			.distinct()
+			.toArray(Lane[]::new);
+		if (lanes.length == 0) {
+			this.start(command);
+			return;
+		}
+
+		MultiLaneJob job = new MultiLaneJob(command, lanes);
+		List<Lane> idle = new ArrayList<>(lanes.length);
+		synchronized (this.multiLaneLock) {
+			for (Lane lane : lanes) {
+				synchronized (lane) {
+					lane.queue.add(job);
+					if (!lane.running) idle.add(lane);
+					lane.running = true;
+				}
+			}
+		}
+		idle.forEach(this::dispatch);
+	}
+
+	private Lane getLane(Object key) {
+		return this.lanes[Math.floorMod(Objects.hashCode(key), this.lanes.length)];
+	}
+
+	private void dispatch(Lane lane) {
+		Object next;
+		synchronized (lane) {
+			next = lane.queue.poll();
+			if (next == null) {
+				lane.running = false;
+				return;
+			}
+		}
+
+		if (next instanceof MultiLaneJob) {
+			// Lane stays blocked until job reaches the head of its other lanes
+			MultiLaneJob job = (MultiLaneJob) next;
+			if (job.waiting.decrementAndGet() == 0) this.start(job.command, job.lanes);
+			return;
+		}
+		this.start((Runnable) next, lane);
+	}
+
+	/**
+	 * Submit job to pool and continue with lanes after it completes
+	 */
+	private void start(Runnable command, Lane... lanes) {
+		Supplier<Void> supplier = () -> {
+			try {
+				command.run();
+			} finally {
+				for (Lane lane : lanes) {
+					this.dispatch(lane);
+				}
+			}
+			return null;
+		};
+		// Time spent waiting in lane counts towards aging of the job
+		this.delegate.execute(command instanceof AsyncJob ?
+			new AsyncJob<>((AsyncJob<?>) command, supplier, new CompletableFuture<>()) :
+			new AsyncJob<>(0, 0L, supplier, new CompletableFuture<>()));
+	}
+
+	@Override
+	public void execute(Runnable command) {
+		this.delegate.execute(command);
+	}
+
+	@Override
+	public void shutdown() {
+		this.delegate.shutdown();
+	}
+
+	@Override
+	public List<Runnable> shutdownNow() {
+		return this.delegate.shutdownNow();
+	}
+
+	@Override
+	public boolean isShutdown() {
+		return this.delegate.isShutdown();
+	}
+
+	@Override
+	public boolean isTerminated() {
+		return this.delegate.isTerminated();
+	}
+
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return this.delegate.awaitTermination(timeout, unit);
+	}
+
+	private static class Lane {
+		/**
+		 * Runnable jobs of single key and {@link MultiLaneJob} jobs
+		 */
+		private final Queue<Object> queue = new ArrayDeque<>();
+		private boolean running;
+	}
+
+	private static class MultiLaneJob {
+		private final Runnable command;
+		private final Lane[] lanes;
+		private final AtomicInteger waiting;
+
+		private MultiLaneJob(Runnable command, Lane[] lanes) {
+			this.command = command;
+			this.lanes = lanes;
+			this.waiting = new AtomicInteger(lanes.length);
+		}
+	}
+}
@@ -16,6 +16,7 @@
 
 package com.enhancedprojects.enhancedspigot.data.util;
 
+import java.util.Collection;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
 import java.util.function.Supplier;
@@ -32,6 +33,38 @@ public class PriorityCompletableUtil {
 		return future;
 	}
 
+	/**
+	 * Supply async in order with other jobs of the same key
+	 * Key is ignored when executor is not {@link KeyedPriorityExecutor}
+	 */
+	public static <T> CompletableFuture<T> supplyAsync(Supplier<T> supplier, ExecutorService executor, int priority, long operationId, Object key) {
+		if (!(executor instanceof KeyedPriorityExecutor)) return supplyAsync(supplier, executor, priority, operationId);
+		if (DisableLock.IS_LOCKED) {
+			supplier.get();
+			return null;
+		}
+
+		CompletableFuture<T> future = new CompletableFuture<>();
+		((KeyedPriorityExecutor) executor).execute(key, new AsyncJob<>(priority, operationId, supplier, future));
+		return future;
+	}
+
+	/**
+	 * Supply async in order with other jobs of all keys, which wait until it completes
+	 * Keys are ignored when executor is not {@link KeyedPriorityExecutor}
+	 */
+	public static <T> CompletableFuture<T> supplyAsyncForKeys(Supplier<T> supplier, ExecutorService executor, int priority, long operationId, Collection<?> keys) {
+		if (!(executor instanceof KeyedPriorityExecutor)) return supplyAsync(supplier, executor, priority, operationId);
+		if (DisableLock.IS_LOCKED) {
+			supplier.get();
+			return null;
+		}
+
+		CompletableFuture<T> future = new CompletableFuture<>();
+		((KeyedPriorityExecutor) executor).execute(keys, new AsyncJob<>(priority, operationId, supplier, future));
+		return future;
+	}
+
 	public static CompletableFuture<Void> runAsync(Runnable runnable, ExecutorService executor, int priority, long operationId) {
 		return supplyAsync(
 			() -> {
@@ -40,4 +73,22 @@ public class PriorityCompletableUtil {
 			}, executor, priority, operationId
 		);
 	}
+
+	public static CompletableFuture<Void> runAsync(Runnable runnable, ExecutorService executor, int priority, long operationId, Object key) {
+		return supplyAsync(
+			() -> {
+				runnable.run();
+				return null;
+			}, executor, priority, operationId, key
+		);
+	}
+
+	public static CompletableFuture<Void> runAsyncForKeys(Runnable runnable, ExecutorService executor, int priority, long operationId, Collection<?> keys) {
+		return supplyAsyncForKeys(
+			() -> {
+				runnable.run();
+				return null;
+			}, executor, priority, operationId, keys
+		);
+	}
 }
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.util;
+
+import com.enhancedprojects.enhancedspigot.data.metrics.LatencyHistogram;
+import lombok.Getter;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Queue of {@link AsyncJob} for database executors
+ * Waiting jobs age, so every {@link #agingMillis} of waiting counts as one more priority level.
+ * Jobs that end up equal run in creation order.
+ * Depth and wait time are tracked for every priority.
+ */
+public class PriorityJobQueue extends PriorityBlockingQueue<Runnable> {
+	private static final long serialVersionUID = 1L;
+
+	@Getter private final long agingMillis;
+	private final ConcurrentMap<Integer, AtomicInteger> depths = new ConcurrentHashMap<>();
+	private final ConcurrentMap<Integer, LatencyHistogram> waitTimes = new ConcurrentHashMap<>();
+
+	/**
+	 * @param agingMillis Milliseconds of waiting that raise job priority by one, 0 to disable aging
+	 */
+	public PriorityJobQueue(long agingMillis) {
+		super(11, new AgingComparator(TimeUnit.MILLISECONDS.toNanos(Math.max(0L, agingMillis))));
+		this.agingMillis = Math.max(0L, agingMillis);
+	}
+
+	@Override
+	public boolean offer(Runnable runnable) {
+		boolean added = super.offer(runnable);
+		if (added) this.depth(runnable)
+			.incrementAndGet();
+		return added;
+	}
+
+	@Override
+	public Runnable poll() {
+		return this.dequeued(super.poll());
+	}
+
+	@Override
+	public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+		return this.dequeued(super.poll(timeout, unit));
+	}
+
+	@Override
+	public Runnable take() throws InterruptedException {
+		return this.dequeued(super.take());
+	}
+
+	@Override
+	public boolean remove(Object o) {
+		boolean removed = super.remove(o);
+		if (removed && o instanceof Runnable) this.depth((Runnable) o)
+			.decrementAndGet();
+		return removed;
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> c) {
+		return this.drainTo(c, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int drainTo(Collection<? super Runnable> c, int maxElements) {
+		int drained = 0;
+		Runnable runnable;
+		while (drained < maxElements && (runnable = super.poll()) != null) {
+			this.depth(runnable)
+				.decrementAndGet();
+			c.add(runnable);
+			drained++;
+		}
+		return drained;
+	}
+
+	@Override
+	public void clear() {
+		super.clear();
+		this.depths.clear();
+	}
+
+	/**
+	 * Get number of waiting jobs for every priority
+	 *
+	 * @return Map of priority and number of jobs
+	 */
+	public Map<Integer, Integer> getDepths() {
+		Map<Integer, Integer> result = new TreeMap<>(Collections.reverseOrder());
+		this.depths.forEach((priority, depth) -> result.put(priority, depth.get()));
+		return result;
+	}
+
+	/**
+	 * Get histograms of time that jobs waited in queue for every priority
+	 *
+	 * @return Map of priority and histogram
+	 */
+	public Map<Integer, LatencyHistogram> getWaitTimes() {
+		Map<Integer, LatencyHistogram> result = new TreeMap<>(Collections.reverseOrder());
+		result.putAll(this.waitTimes);
+		return result;
+	}
+
+	private Runnable dequeued(Runnable runnable) {
+		if (runnable == null) return null;
+		this.depth(runnable)
+			.decrementAndGet();
+		if (runnable instanceof AsyncJob) {
+			AsyncJob<?> job = (AsyncJob<?>) runnable;
+			this.waitTimes.computeIfAbsent(job.getPriority(), priority -> new LatencyHistogram())
+				.record(System.nanoTime() - job.getCreatedAt());
+		}
+		return runnable;
+	}
+
+	private AtomicInteger depth(Runnable runnable) {
+		int priority = runnable instanceof AsyncJob ?
+			((AsyncJob<?>) runnable).getPriority() :
+			0;
+		return this.depths.computeIfAbsent(priority, p -> new AtomicInteger());
+	}
+
+	private static class AgingComparator implements Comparator<Runnable> {
+		private final long agingNanos;
+
+		private AgingComparator(long agingNanos) {
+			this.agingNanos = agingNanos;
+		}
+
+		@Override
+		public int compare(Runnable first, Runnable second) {
+			AsyncJob<?> a = (AsyncJob<?>) first;
+			AsyncJob<?> b = (AsyncJob<?>) second;
+			if (this.agingNanos <= 0L) return a.compareTo(b);
+
+			// Job that would reach the same effective priority earlier runs first
+			long diff = (a.getCreatedAt() - a.getPriority() * this.agingNanos) - (b.getCreatedAt() - b.getPriority() * this.agingNanos);
+			if (diff != 0L) return diff < 0L ?
+				-1 :
+				1;
+			return Long.compare(a.getSequence(), b.getSequence());
+		}
+	}
+}
@@ -63,6 +63,20 @@ public class RealtimeCacheUtil {
 		}
 	}
 
+	/**
+	 * Create child in the next transactional flush of its parent
+	 */
+	public static <K, T> void createForeign(IAsyncDataRepository<K, ?> cache, K parentKey, T foreign, ForeignCollection<T> collection) {
+		if (cache instanceof RealtimeDataRepository<?, ?>) ((RealtimeDataRepository<K, ?>) cache).queueCreate(parentKey, foreign, collection);
+	}
+
+	/**
+	 * Delete child in the next transactional flush of its parent
+	 */
+	public static <K, T> void removeForeign(IAsyncDataRepository<K, ?> cache, K parentKey, T foreign, ForeignCollection<T> collection) {
+		if (cache instanceof RealtimeDataRepository<?, ?>) ((RealtimeDataRepository<K, ?>) cache).queueDelete(parentKey, foreign, collection);
+	}
+
 	public static <T> void removeForeign(IAsyncDataRepository<?, ?> cache, T foreign, ForeignCollection<T> collection) {
 		if (cache instanceof RealtimeDataRepository<?, ?>) {
 			RealtimeDataRepository<?, ?> lc = (RealtimeDataRepository<?, ?>) cache;
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package com.enhancedprojects.enhancedspigot.data.util;
+
+import lombok.Getter;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Number of values written and skipped during one save cycle of repository
+ */
+public class SaveCycleStats {
+	@Getter private final long startTime;
+	private final AtomicInteger written;
+	private final AtomicInteger skipped;
+
+	public SaveCycleStats() {
+		this.startTime = System.currentTimeMillis();
+		this.written = new AtomicInteger();
+		this.skipped = new AtomicInteger();
+	}
+
+	public void record(boolean written) {
+		if (written) this.written.incrementAndGet();
+		else this.skipped.incrementAndGet();
+	}
+
+	public int getWritten() {
+		return this.written.get();
+	}
+
+	public int getSkipped() {
+		return this.skipped.get();
+	}
+
+	@Override
+	public String toString() {
+		return "written=" + this.getWritten() + ", skipped=" + this.getSkipped();
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timing wheel
+ * Items are put into slots by their deadline and taken out in bulk by {@link #advance(long)}, so cost of scheduling doesn't depend on number of items.
+ * Items can't be removed, owner should ignore items that are no longer valid
+ *
+ * @param <T> Type of items
+ */
+public class TimingWheel<T> {
+	private final long tickMillis;
+	private final List<List<Entry<T>>> slots;
+	private long currentTick;
+
+	/**
+	 * @param tickMillis Length of one tick in milliseconds
+	 * @param size       Number of slots
+	 */
+	public TimingWheel(long tickMillis, int size) {
+		this.tickMillis = Math.max(1L, tickMillis);
+		this.slots = new ArrayList<>(size);
+		for (int i = 0; i < Math.max(1, size); i++) {
+			this.slots.add(new ArrayList<>());
+		}
+		this.currentTick = System.currentTimeMillis() / this.tickMillis;
+	}
+
+	/**
+	 * Schedule item
+	 *
+	 * @param item     Item
+	 * @param deadline Time in milliseconds when item expires
+	 */
+	public synchronized void schedule(T item, long deadline) {
+		long tick = Math.max((deadline + this.tickMillis - 1) / this.tickMillis, this.currentTick + 1);
+		this.slots.get((int) (tick % this.slots.size()))
+			.add(new Entry<>(item, tick));
+	}
+
+	/**
+	 * Move wheel to specified time
+	 *
+	 * @param now Current time in milliseconds
+	 * @return Items with deadline before now
+	 */
+	public synchronized List<T> advance(long now) {
+		List<T> expired = new ArrayList<>();
+		long targetTick = now / this.tickMillis;
+		if (targetTick <= this.currentTick) return expired;
+
+		// Every slot is visited at most once, even when wheel lags behind more than one round
+		long fromTick = Math.max(this.currentTick + 1, targetTick - this.slots.size() + 1);
+		for (long tick = fromTick; tick <= targetTick; tick++) {
+			this.slots.get((int) (tick % this.slots.size()))
+				.removeIf(entry -> {
+					if (entry.tick > targetTick) return false;
+					expired.add(entry.item);
+					return true;
+				});
+		}
+		this.currentTick = targetTick;
+		return expired;
+	}
+
+	private static class Entry<T> {
+		private final T item;
+		private final long tick;
+
+		private Entry(T item, long tick) {
+			this.item = item;
+			this.tick = tick;
+		}
+	}
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.util;
+
+import com.enhancedprojects.enhancedspigot.util.TryCatchUtil;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads
+ * Java 21 API is looked up by reflection once, so the class still runs on older runtimes
+ */
+public class VirtualThreadSupport {
+	private static final ThreadFactory FACTORY = TryCatchUtil.tryOrDefault(
+		() -> {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual")
+				.invoke(null);
+			builder = builderClass.getMethod("name", String.class, long.class)
+				.invoke(builder, "enhancedspigot-data-", 0L);
+			return (ThreadFactory) builderClass.getMethod("factory")
+				.invoke(builder);
+		}, null, (e) -> {}
+	);
+
+	/**
+	 * Get factory of virtual threads
+	 *
+	 * @return Factory or null when runtime doesn't support virtual threads
+	 */
+	public static ThreadFactory factory() {
+		return FACTORY;
+	}
+
+	public static boolean isAvailable() {
+		return FACTORY != null;
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package com.enhancedprojects.enhancedspigot.data;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.util.logging.Logger;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Mocks of server and plugin for tests that use DatabaseController
+ */
+public final class TestPlugins {
+	private TestPlugins() {}
+
+	/**
+	 * Create plugin with given data folder, server is mocked first, so Bukkit logger is available
+	 */
+	public static JavaPlugin mockPlugin(File dataFolder) {
+		mockServer();
+		JavaPlugin plugin = mock(JavaPlugin.class);
+		when(plugin.getDataFolder()).thenReturn(dataFolder);
+		when(plugin.getLogger()).thenReturn(Logger.getLogger("TestPlugin"));
+		return plugin;
+	}
+
+	private static synchronized void mockServer() {
+		if (Bukkit.getServer() != null) return;
+		Server server = mock(Server.class);
+		when(server.getLogger()).thenReturn(Logger.getLogger("Server"));
+		Bukkit.setServer(server);
+	}
+}
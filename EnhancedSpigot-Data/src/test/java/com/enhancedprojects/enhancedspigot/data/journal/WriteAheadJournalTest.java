@@ -0,0 +1,249 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.journal;
+
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.DaoManager;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.jdbc.JdbcConnectionSource;
+import com.j256.ormlite.support.ConnectionSource;
+import com.j256.ormlite.table.DatabaseTable;
+import com.j256.ormlite.table.TableUtils;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class WriteAheadJournalTest {
+	private static final Logger LOGGER = Logger.getLogger("WriteAheadJournalTest");
+
+	@TempDir File folder;
+
+	private File file;
+	private ConnectionSource source;
+	private Dao<Account, String> accounts;
+	private Dao<Entry, Integer> entries;
+	private Dao<Item, String> items;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		this.file = new File(this.folder, "journal.wal");
+		this.source = new JdbcConnectionSource("jdbc:sqlite:" + new File(this.folder, "data.db").getAbsolutePath());
+		TableUtils.createTable(this.source, Account.class);
+		TableUtils.createTable(this.source, Entry.class);
+		TableUtils.createTable(this.source, Item.class);
+		this.accounts = DaoManager.createDao(this.source, Account.class);
+		this.entries = DaoManager.createDao(this.source, Entry.class);
+		this.items = DaoManager.createDao(this.source, Item.class);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		this.source.close();
+	}
+
+	@Test
+	void replaysOutstandingWritesAfterReopen() throws Exception {
+		try (WriteAheadJournal journal = this.open()) {
+			journal.appendSave(this.accounts, new Account("alice", 5));
+			journal.acknowledge(journal.appendSave(this.accounts, new Account("bob", 7)));
+		}
+
+		try (WriteAheadJournal journal = this.open()) {
+			assertEquals(1, journal.getOutstanding());
+			assertEquals(1, journal.replay(this.accounts));
+			assertEquals(0, journal.getOutstanding());
+		}
+		assertEquals(5, this.accounts.queryForId("alice").points);
+		assertNull(this.accounts.queryForId("bob"));
+	}
+
+	@Test
+	void replaysDelete() throws Exception {
+		this.accounts.create(new Account("alice", 5));
+		try (WriteAheadJournal journal = this.open()) {
+			journal.appendDelete(this.accounts, new Account("alice", 5));
+		}
+
+		try (WriteAheadJournal journal = this.open()) {
+			assertEquals(1, journal.replay(this.accounts));
+		}
+		assertNull(this.accounts.queryForId("alice"));
+	}
+
+	@Test
+	void acknowledgeAlsoAcknowledgesOlderWritesOfSameEntity() throws Exception {
+		try (WriteAheadJournal journal = this.open()) {
+			journal.appendSave(this.accounts, new Account("alice", 1));
+			long sequence = journal.appendSave(this.accounts, new Account("alice", 2));
+			journal.appendSave(this.accounts, new Account("bob", 3));
+
+			journal.acknowledge(sequence);
+			assertEquals(1, journal.getOutstanding());
+		}
+	}
+
+	@Test
+	void acknowledgeKeepsNewerWritesOfSameEntity() throws Exception {
+		try (WriteAheadJournal journal = this.open()) {
+			long sequence = journal.appendSave(this.accounts, new Account("alice", 1));
+			journal.appendSave(this.accounts, new Account("alice", 2));
+
+			journal.acknowledge(sequence);
+			assertEquals(1, journal.getOutstanding());
+		}
+
+		try (WriteAheadJournal journal = this.open()) {
+			assertEquals(1, journal.replay(this.accounts));
+		}
+		assertEquals(2, this.accounts.queryForId("alice").points);
+	}
+
+	@Test
+	void saveRejectedByVersionIsNotAcknowledged() throws Exception {
+		Item item = new Item("sword", "old");
+		this.items.create(item);
+		try (WriteAheadJournal journal = this.open()) {
+			journal.appendSave(this.items, item);
+		}
+		item.text = "new";
+		this.items.update(item);
+
+		try (WriteAheadJournal journal = this.open()) {
+			assertEquals(0, journal.replay(this.items));
+			assertEquals(1, journal.getOutstanding());
+		}
+		assertEquals("new", this.items.queryForId("sword").text);
+	}
+
+	@Test
+	void fileIsTruncatedWhenNothingIsOutstanding() throws Exception {
+		try (WriteAheadJournal journal = this.open()) {
+			long first = journal.appendSave(this.accounts, new Account("alice", 1));
+			long second = journal.appendSave(this.accounts, new Account("bob", 2));
+			journal.acknowledge(first);
+			assertEquals(1, journal.getOutstanding());
+
+			journal.acknowledge(second);
+			assertEquals(0L, this.file.length());
+		}
+	}
+
+	@Test
+	void recordWithBadChecksumEndsReading() throws Exception {
+		try (WriteAheadJournal journal = this.open()) {
+			journal.appendSave(this.accounts, new Account("alice", 1));
+			journal.appendSave(this.accounts, new Account("bob", 2));
+		}
+
+		try (RandomAccessFile raf = new RandomAccessFile(this.file, "rw")) {
+			raf.seek(raf.length() - 1);
+			int last = raf.read();
+			raf.seek(raf.length() - 1);
+			raf.write(last ^ 0xFF);
+		}
+
+		try (WriteAheadJournal journal = this.open()) {
+			assertEquals(1, journal.getOutstanding());
+			assertEquals(1, journal.replay(this.accounts));
+		}
+		assertEquals(1L, this.accounts.countOf());
+	}
+
+	@Test
+	void truncatedRecordIsSkipped() throws Exception {
+		try (WriteAheadJournal journal = this.open()) {
+			journal.appendSave(this.accounts, new Account("alice", 1));
+			journal.appendSave(this.accounts, new Account("bob", 2));
+		}
+
+		try (RandomAccessFile raf = new RandomAccessFile(this.file, "rw")) {
+			raf.setLength(raf.length() - 3);
+		}
+
+		try (WriteAheadJournal journal = this.open()) {
+			assertEquals(1, journal.getOutstanding());
+		}
+		// Reopened journal was rewritten without the damaged record
+		try (WriteAheadJournal journal = this.open()) {
+			assertEquals(1, journal.getOutstanding());
+		}
+	}
+
+	@Test
+	void entityWithoutAssignedIdIsNotJournaled() throws Exception {
+		try (WriteAheadJournal journal = this.open()) {
+			assertEquals(0L, journal.appendSave(this.entries, new Entry("new")));
+			assertEquals(0, journal.getOutstanding());
+		}
+
+		try (WriteAheadJournal journal = this.open()) {
+			assertEquals(0, journal.replay(this.entries));
+		}
+		assertEquals(0L, this.entries.countOf());
+	}
+
+	private WriteAheadJournal open() throws Exception {
+		return new WriteAheadJournal(this.file, false, 1024L, LOGGER);
+	}
+
+	@DatabaseTable(tableName = "accounts")
+	public static class Account {
+		@DatabaseField(id = true) private String name;
+		@DatabaseField private int points;
+
+		public Account() {}
+
+		Account(String name, int points) {
+			this.name = name;
+			this.points = points;
+		}
+	}
+
+	@DatabaseTable(tableName = "entries")
+	public static class Entry {
+		@DatabaseField(generatedId = true) private Integer id;
+		@DatabaseField private String text;
+
+		public Entry() {}
+
+		Entry(String text) {
+			this.text = text;
+		}
+	}
+
+	@DatabaseTable(tableName = "items")
+	public static class Item {
+		@DatabaseField(id = true) private String name;
+		@DatabaseField private String text;
+		@DatabaseField(version = true) private int version;
+
+		public Item() {}
+
+		Item(String name, String text) {
+			this.name = name;
+			this.text = text;
+		}
+	}
+}
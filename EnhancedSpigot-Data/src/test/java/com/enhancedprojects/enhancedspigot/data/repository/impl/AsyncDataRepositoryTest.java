@@ -0,0 +1,131 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package com.enhancedprojects.enhancedspigot.data.repository.impl;
+
+import com.enhancedprojects.enhancedspigot.data.DatabaseController;
+import com.enhancedprojects.enhancedspigot.data.TestPlugins;
+import com.enhancedprojects.enhancedspigot.data.connection.DatabaseOptions;
+import com.enhancedprojects.enhancedspigot.data.repository.entity.AbstractDataEntity;
+import com.enhancedprojects.enhancedspigot.data.storage.MemoryDataStorage;
+import com.enhancedprojects.enhancedspigot.data.util.DrainReport;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncDataRepositoryTest {
+	@TempDir File dataFolder;
+
+	private DatabaseController controller;
+	private AsyncDataRepository<String, Account> repository;
+
+	@BeforeEach
+	void setUp() {
+		JavaPlugin plugin = TestPlugins.mockPlugin(this.dataFolder);
+		this.controller = new DatabaseController(plugin, new DatabaseOptions());
+		this.controller.start();
+		this.controller.registerEntity(Account.class);
+		this.repository = new AsyncDataRepository<>(this.controller, new MemoryDataStorage<>(), String.class, Account.class, plugin);
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.controller.close();
+	}
+
+	@Test
+	void drainAfterSaveReportsNothingUnsaved() throws Exception {
+		this.repository.createAsync("alice", new Account("alice", 1))
+			.get();
+		this.repository.createAsync("bob", new Account("bob", 2))
+			.get();
+		this.repository.get("alice").points = 10;
+		this.repository.saveAsyncAll()
+			.get();
+
+		DrainReport<String> report = this.repository.drainAll(5000L);
+
+		assertEquals(new HashSet<String>(), report.getUnsaved());
+		assertTrue(report.isComplete());
+	}
+
+	@Test
+	void drainSavesChangesMadeAfterLoad() throws Exception {
+		this.repository.createAsync("alice", new Account("alice", 1))
+			.get();
+		this.repository.getCache()
+			.invalidateAll();
+		this.repository.loadAsyncAll(Arrays.asList("alice"))
+			.get();
+		this.repository.get("alice").points = 5;
+
+		DrainReport<String> report = this.repository.drainAll(5000L);
+
+		assertTrue(report.isComplete());
+		this.repository.getCache()
+			.invalidateAll();
+		assertEquals(5, this.repository.load("alice").points);
+	}
+
+	@Test
+	void fullTableQueriesAreTimed() throws Exception {
+		this.repository.createAsync("alice", new Account("alice", 1))
+			.get();
+		this.repository.getCache()
+			.invalidateAll();
+
+		this.repository.loadAsyncAll()
+			.get();
+		this.repository.getCache()
+			.invalidateAll();
+		this.repository.loopAsyncAll()
+			.get();
+
+		assertEquals(2L, this.repository.getMetrics()
+			.getOperation("queryForAll")
+			.getCount());
+	}
+
+	@DatabaseTable(tableName = "accounts")
+	public static class Account extends AbstractDataEntity<String> {
+		@DatabaseField(id = true) private String name;
+		@DatabaseField private int points;
+
+		public Account() {}
+
+		Account(String name, int points) {
+			this.name = name;
+			this.points = points;
+		}
+
+		@Override
+		public String getKey() {
+			return this.name;
+		}
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.repository.impl;
+
+import com.enhancedprojects.enhancedspigot.data.DatabaseController;
+import com.enhancedprojects.enhancedspigot.data.TestPlugins;
+import com.enhancedprojects.enhancedspigot.data.connection.DatabaseOptions;
+import com.enhancedprojects.enhancedspigot.data.repository.entity.AbstractDataEntity;
+import com.enhancedprojects.enhancedspigot.data.repository.entity.ForeignMapper;
+import com.enhancedprojects.enhancedspigot.data.repository.entity.IForeignMapping;
+import com.enhancedprojects.enhancedspigot.data.storage.MemoryDataStorage;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.ForeignCollection;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.field.ForeignCollectionField;
+import com.j256.ormlite.table.DatabaseTable;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class DataRepositoryPrefetchTest {
+	private static final int PARENTS = 20;
+	private static final int CHILDREN_PER_PARENT = 3;
+
+	@TempDir File dataFolder;
+
+	private DatabaseController controller;
+	private DataRepository<String, Parent> repository;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		JavaPlugin plugin = TestPlugins.mockPlugin(this.dataFolder);
+
+		DatabaseOptions options = new DatabaseOptions();
+		options.setSqlTiming(true);
+		this.controller = new DatabaseController(plugin, options);
+		this.controller.start();
+		this.controller.registerEntity(Parent.class);
+		this.controller.registerEntity(Child.class);
+
+		Dao<Parent, String> parents = this.controller.getDao(Parent.class, String.class);
+		Dao<Child, Integer> children = this.controller.getDao(Child.class, Integer.class);
+		for (int i = 0; i < PARENTS; i++) {
+			Parent parent = new Parent("parent-" + i);
+			parents.create(parent);
+			for (int j = 0; j < CHILDREN_PER_PARENT; j++) children.create(new Child(parent));
+		}
+
+		this.repository = new DataRepository<>(this.controller, new MemoryDataStorage<>(), plugin, String.class, Parent.class);
+		this.controller.getMetrics().reset();
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.controller.close();
+	}
+
+	@Test
+	void loadAllPrefetchesChildrenWithOneQueryPerChunk() {
+		List<String> keys = new ArrayList<>();
+		for (int i = 0; i < PARENTS; i++) keys.add("parent-" + i);
+
+		Map<String, Parent> loaded = this.repository.loadAll(keys);
+
+		assertEquals(PARENTS, loaded.size());
+		loaded.values().forEach(parent -> assertEquals(CHILDREN_PER_PARENT, parent.cachedChildren.size()));
+		assertEquals(1L, this.countStatements("FROM `children`"));
+	}
+
+	private long countStatements(String fragment) {
+		return this.controller.getMetrics().getStatements().entrySet().stream()
+			.filter(entry -> entry.getKey().contains(fragment))
+			.mapToLong(entry -> entry.getValue().getCount())
+			.sum();
+	}
+
+	@DatabaseTable(tableName = "parents")
+	public static class Parent extends AbstractDataEntity<String> implements IForeignMapping {
+		@DatabaseField(id = true) private String id;
+		@ForeignCollectionField private ForeignCollection<Child> children;
+		private final List<Child> cachedChildren = new ArrayList<>();
+
+		public Parent() {}
+
+		Parent(String id) {
+			this.id = id;
+		}
+
+		@Override
+		public String getKey() {
+			return this.id;
+		}
+
+		@Override
+		public Map<ForeignCollection<? extends AbstractDataEntity<Integer>>, Collection<? extends AbstractDataEntity<Integer>>> getForeignMapping() {
+			Map<ForeignCollection<? extends AbstractDataEntity<Integer>>, Collection<? extends AbstractDataEntity<Integer>>> mapping = new HashMap<>();
+			if (this.children != null) mapping.put(this.children, this.cachedChildren);
+			return mapping;
+		}
+
+		@Override
+		public List<ForeignMapper<?>> getForeignMappers() {
+			return Collections.emptyList();
+		}
+	}
+
+	@DatabaseTable(tableName = "children")
+	public static class Child extends AbstractDataEntity<Integer> {
+		@DatabaseField(generatedId = true) private Integer id;
+		@DatabaseField(foreign = true, columnName = "parent_id") private Parent parent;
+
+		public Child() {}
+
+		Child(Parent parent) {
+			this.parent = parent;
+		}
+
+		@Override
+		public Integer getKey() {
+			return this.id;
+		}
+	}
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package com.enhancedprojects.enhancedspigot.data.repository.impl;
+
+import com.enhancedprojects.enhancedspigot.data.DatabaseController;
+import com.enhancedprojects.enhancedspigot.data.TestPlugins;
+import com.enhancedprojects.enhancedspigot.data.connection.DatabaseOptions;
+import com.enhancedprojects.enhancedspigot.data.repository.entity.AbstractDataEntity;
+import com.enhancedprojects.enhancedspigot.data.repository.entity.ForeignMapper;
+import com.enhancedprojects.enhancedspigot.data.repository.entity.IForeignMapping;
+import com.enhancedprojects.enhancedspigot.data.repository.entity.ITrackedDataEntity;
+import com.enhancedprojects.enhancedspigot.data.storage.MemoryDataStorage;
+import com.enhancedprojects.enhancedspigot.data.sync.ChangeType;
+import com.enhancedprojects.enhancedspigot.data.sync.InvalidationMessage;
+import com.j256.ormlite.dao.Dao;
+import com.j256.ormlite.dao.ForeignCollection;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.field.ForeignCollectionField;
+import com.j256.ormlite.table.DatabaseTable;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DataRepositoryTest {
+	@TempDir File dataFolder;
+
+	private DatabaseController controller;
+	private Dao<Account, String> dao;
+	private DataRepository<String, Account> repository;
+	private JavaPlugin plugin;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		this.plugin = TestPlugins.mockPlugin(this.dataFolder);
+		this.controller = new DatabaseController(this.plugin, new DatabaseOptions());
+		this.controller.start();
+		this.controller.registerEntity(Account.class);
+		this.dao = this.controller.getDao(Account.class, String.class);
+		this.dao.create(new Account("alice", 1));
+		this.repository = new DataRepository<>(this.controller, new MemoryDataStorage<>(), this.plugin, String.class, Account.class);
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.controller.close();
+	}
+
+	@Test
+	void remoteUpdateDropsCleanUntrackedValue() {
+		this.repository.load("alice");
+
+		this.repository.applyRemoteChange(this.remoteUpdate("alice"));
+
+		assertFalse(this.repository.getCache()
+			.contains("alice"));
+	}
+
+	@Test
+	void remoteUpdateKeepsValueWithUnsavedChanges() {
+		this.repository.load("alice")
+			.markModified();
+
+		this.repository.applyRemoteChange(this.remoteUpdate("alice"));
+
+		assertTrue(this.repository.getCache()
+			.contains("alice"));
+	}
+
+	@Test
+	void failedBatchIsRolledBack() throws Exception {
+		this.dao.create(new Account("bob", 2));
+		Account alice = this.repository.load("alice");
+		Account bob = this.repository.load("bob");
+		alice.points = 5;
+		// Check constraint makes the update of the second value fail
+		bob.points = -1;
+
+		assertFalse(this.repository.saveBatch(Arrays.asList(alice, bob)));
+
+		assertEquals(1, this.dao.queryForId("alice").points);
+		assertTrue(alice.hasUnsavedChanges());
+		assertTrue(bob.hasUnsavedChanges());
+	}
+
+	@Test
+	void parentStaysModifiedWhenChildrenFailToSave() throws Exception {
+		this.controller.registerEntity(Parent.class);
+		this.controller.registerEntity(Child.class);
+		Dao<Parent, String> parents = this.controller.getDao(Parent.class, String.class);
+		Dao<Child, Integer> children = this.controller.getDao(Child.class, Integer.class);
+		Parent stored = new Parent("bob");
+		parents.create(stored);
+		DataRepository<String, Parent> parentRepository = new DataRepository<>(this.controller, new MemoryDataStorage<>(), this.plugin, String.class, Parent.class);
+		Parent parent = parentRepository.load("bob");
+
+		// Row with the same unique name makes the insert of the new child fail
+		Child blocking = new Child(stored, "sword");
+		children.create(blocking);
+		parent.cachedChildren.add(new Child(null, "sword"));
+		parent.markModified();
+		parentRepository.saveValue(parent);
+
+		assertTrue(parent.hasUnsavedChanges());
+
+		children.delete(blocking);
+		parentRepository.saveValue(parent);
+
+		assertFalse(parent.hasUnsavedChanges());
+		assertEquals(1L, children.countOf());
+	}
+
+	private InvalidationMessage remoteUpdate(String key) {
+		return new InvalidationMessage("other-server", this.dao.getTableName(), key, ChangeType.UPDATE);
+	}
+
+	@DatabaseTable(tableName = "accounts")
+	public static class Account extends AbstractDataEntity<String> {
+		@DatabaseField(id = true) private String name;
+		@DatabaseField(columnDefinition = "INTEGER NOT NULL CHECK (points >= 0)") private int points;
+
+		public Account() {}
+
+		Account(String name, int points) {
+			this.name = name;
+			this.points = points;
+		}
+
+		@Override
+		public String getKey() {
+			return this.name;
+		}
+	}
+
+	@DatabaseTable(tableName = "parents")
+	public static class Parent extends AbstractDataEntity<String> implements IForeignMapping, ITrackedDataEntity {
+		@DatabaseField(id = true) private String id;
+		@ForeignCollectionField private ForeignCollection<Child> children;
+		private final List<Child> cachedChildren = new ArrayList<>();
+
+		public Parent() {}
+
+		Parent(String id) {
+			this.id = id;
+		}
+
+		@Override
+		public String getKey() {
+			return this.id;
+		}
+
+		@Override
+		public Map<ForeignCollection<? extends AbstractDataEntity<Integer>>, Collection<? extends AbstractDataEntity<Integer>>> getForeignMapping() {
+			Map<ForeignCollection<? extends AbstractDataEntity<Integer>>, Collection<? extends AbstractDataEntity<Integer>>> mapping = new HashMap<>();
+			if (this.children != null) mapping.put(this.children, this.cachedChildren);
+			return mapping;
+		}
+
+		@Override
+		public List<ForeignMapper<?>> getForeignMappers() {
+			return Collections.emptyList();
+		}
+	}
+
+	@DatabaseTable(tableName = "children")
+	public static class Child extends AbstractDataEntity<Integer> {
+		@DatabaseField(generatedId = true) private Integer id;
+		@DatabaseField(foreign = true, columnName = "parent_id") private Parent parent;
+		@DatabaseField(unique = true) private String name;
+
+		public Child() {}
+
+		Child(Parent parent, String name) {
+			this.parent = parent;
+			this.name = name;
+		}
+
+		@Override
+		public Integer getKey() {
+			return this.id;
+		}
+	}
+}
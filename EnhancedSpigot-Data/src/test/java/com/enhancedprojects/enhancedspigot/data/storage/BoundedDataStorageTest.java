@@ -0,0 +1,132 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package com.enhancedprojects.enhancedspigot.data.storage;
+
+import com.enhancedprojects.enhancedspigot.data.repository.entity.AbstractDataEntity;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoundedDataStorageTest {
+	@Test
+	void leastRecentlyUsedValueIsEvictedFirst() {
+		BoundedDataStorage<String, Value> storage = BoundedDataStorage.<String, Value>builder()
+			.maximumSize(3)
+			.build();
+		List<String> evicted = new ArrayList<>();
+		storage.setEvictionListener((key, value) -> evicted.add(key));
+
+		storage.set("a", new Value("a", 1));
+		storage.set("b", new Value("b", 1));
+		storage.set("c", new Value("c", 1));
+		storage.get("a");
+		storage.set("d", new Value("d", 1));
+		storage.set("e", new Value("e", 1));
+
+		assertEquals(Arrays.asList("b", "c"), evicted);
+		assertEquals(Arrays.asList("a", "d", "e"), new ArrayList<>(storage.keySet()));
+	}
+
+	@Test
+	void weigherLimitsTotalWeight() {
+		BoundedDataStorage<String, Value> storage = BoundedDataStorage.<String, Value>builder()
+			.maximumWeight(10)
+			.weigher(Value::getWeight)
+			.build();
+		List<String> evicted = new ArrayList<>();
+		storage.setEvictionListener((key, value) -> evicted.add(key));
+
+		storage.set("a", new Value("a", 4));
+		storage.set("b", new Value("b", 4));
+		assertEquals(8L, storage.getTotalWeight());
+
+		storage.set("c", new Value("c", 5));
+		assertEquals(Arrays.asList("a"), evicted);
+		assertEquals(9L, storage.getTotalWeight());
+	}
+
+	@Test
+	void replacingValueUpdatesWeight() {
+		BoundedDataStorage<String, Value> storage = BoundedDataStorage.<String, Value>builder()
+			.maximumWeight(10)
+			.weigher(Value::getWeight)
+			.build();
+
+		storage.set("a", new Value("a", 4));
+		storage.set("a", new Value("a", 7));
+		assertEquals(7L, storage.getTotalWeight());
+
+		storage.invalidate("a");
+		assertEquals(0L, storage.getTotalWeight());
+	}
+
+	@Test
+	void insertedValueIsKeptEvenWhenHeavierThanLimit() {
+		BoundedDataStorage<String, Value> storage = BoundedDataStorage.<String, Value>builder()
+			.maximumWeight(10)
+			.weigher(Value::getWeight)
+			.build();
+
+		storage.set("a", new Value("a", 3));
+		storage.set("heavy", new Value("heavy", 20));
+
+		assertFalse(storage.contains("a"));
+		assertTrue(storage.contains("heavy"));
+	}
+
+	@Test
+	void valueNotAccessedExpires() throws Exception {
+		BoundedDataStorage<String, Value> storage = BoundedDataStorage.<String, Value>builder()
+			.expireAfterAccess(50L)
+			.build();
+		List<String> evicted = new ArrayList<>();
+		storage.setEvictionListener((key, value) -> evicted.add(key));
+
+		storage.set("a", new Value("a", 1));
+		Thread.sleep(100L);
+		storage.cleanUp();
+
+		assertFalse(storage.contains("a"));
+		assertEquals(Arrays.asList("a"), evicted);
+	}
+
+	private static class Value extends AbstractDataEntity<String> {
+		private final String key;
+		private final int weight;
+
+		private Value(String key, int weight) {
+			this.key = key;
+			this.weight = weight;
+		}
+
+		@Override
+		public String getKey() {
+			return this.key;
+		}
+
+		private int getWeight() {
+			return this.weight;
+		}
+	}
+}
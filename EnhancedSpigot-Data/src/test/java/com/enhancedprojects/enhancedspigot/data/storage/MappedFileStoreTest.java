@@ -0,0 +1,131 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package com.enhancedprojects.enhancedspigot.data.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MappedFileStoreTest {
+	private static final int CAPACITY = 100;
+
+	@TempDir File folder;
+
+	private File file;
+	private MappedFileStore<String> store;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		this.file = new File(this.folder, "cold.bin");
+		this.store = new MappedFileStore<>(this.file, CAPACITY);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		this.store.close();
+	}
+
+	@Test
+	void storesAndRemovesData() {
+		assertTrue(this.store.put("a", data(10, 1)));
+		assertArrayEquals(data(10, 1), this.store.get("a"));
+
+		assertArrayEquals(data(10, 1), this.store.remove("a"));
+		assertNull(this.store.get("a"));
+		assertNull(this.store.remove("a"));
+		assertEquals(0, this.store.size());
+	}
+
+	@Test
+	void compactionReclaimsSpaceOfRemovedEntries() {
+		this.store.put("a", data(40, 1));
+		this.store.put("b", data(40, 2));
+		this.store.remove("a");
+
+		// Does not fit after b, but fits once the space of a is reclaimed
+		assertTrue(this.store.put("c", data(50, 3)));
+		assertArrayEquals(data(40, 2), this.store.get("b"));
+		assertArrayEquals(data(50, 3), this.store.get("c"));
+		assertEquals(2, this.store.size());
+	}
+
+	@Test
+	void replacedDataIsReclaimedByCompaction() {
+		this.store.put("a", data(40, 1));
+		this.store.put("a", data(40, 2));
+		this.store.put("b", data(40, 3));
+
+		assertArrayEquals(data(40, 2), this.store.get("a"));
+		assertArrayEquals(data(40, 3), this.store.get("b"));
+	}
+
+	@Test
+	void overflowDropsOldestEntries() {
+		this.store.put("a", data(40, 1));
+		this.store.put("b", data(40, 2));
+		this.store.put("c", data(40, 3));
+
+		assertFalse(this.store.contains("a"));
+		assertArrayEquals(data(40, 2), this.store.get("b"));
+		assertArrayEquals(data(40, 3), this.store.get("c"));
+	}
+
+	@Test
+	void storingAgainMakesEntryNewest() {
+		this.store.put("a", data(30, 1));
+		this.store.put("b", data(30, 2));
+		this.store.put("a", data(30, 3));
+		this.store.put("c", data(50, 4));
+
+		assertFalse(this.store.contains("b"));
+		assertArrayEquals(data(30, 3), this.store.get("a"));
+		assertArrayEquals(data(50, 4), this.store.get("c"));
+	}
+
+	@Test
+	void dataLargerThanStoreIsRejected() {
+		this.store.put("a", data(10, 1));
+
+		assertFalse(this.store.put("b", data(CAPACITY + 1, 2)));
+		assertArrayEquals(data(10, 1), this.store.get("a"));
+	}
+
+	@Test
+	void closeDeletesFile() throws Exception {
+		this.store.put("a", data(10, 1));
+		this.store.close();
+
+		assertFalse(this.file.exists());
+	}
+
+	private static byte[] data(int length, int value) {
+		byte[] data = new byte[length];
+		Arrays.fill(data, (byte) value);
+		return data;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.storage;
+
+import com.enhancedprojects.enhancedspigot.data.DatabaseController;
+import com.enhancedprojects.enhancedspigot.data.TestPlugins;
+import com.enhancedprojects.enhancedspigot.data.connection.DatabaseOptions;
+import com.enhancedprojects.enhancedspigot.data.repository.entity.AbstractDataEntity;
+import com.j256.ormlite.field.DatabaseField;
+import com.j256.ormlite.table.DatabaseTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TieredDataStorageTest {
+	@TempDir File dataFolder;
+
+	private DatabaseController controller;
+	private TieredDataStorage<String, Account> storage;
+	private CompletableFuture<Void> save;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		this.controller = new DatabaseController(TestPlugins.mockPlugin(this.dataFolder), new DatabaseOptions());
+		this.controller.start();
+		this.controller.registerEntity(Account.class);
+
+		BoundedDataStorage<String, Account> hot = BoundedDataStorage.<String, Account>builder()
+			.maximumSize(1)
+			.build();
+		this.storage = new TieredDataStorage<>(this.controller, hot, String.class, Account.class, new File(this.dataFolder, "cold.dat"), 64 * 1024);
+		this.save = new CompletableFuture<>();
+		this.storage.setEvictionSaver((key, value) -> this.save.thenRun(value::markClean));
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.storage.close();
+		this.controller.close();
+	}
+
+	@Test
+	void valueIsDemotedAfterSaveCompleted() {
+		this.storage.set("alice", new Account("alice"));
+		this.storage.set("bob", new Account("bob"));
+
+		assertFalse(this.storage.isDemoted("alice"));
+
+		this.save.complete(null);
+
+		assertTrue(this.storage.isDemoted("alice"));
+	}
+
+	@Test
+	void valueThatFailedToSaveIsNotDemoted() {
+		// Failed save leaves value modified
+		this.storage.setEvictionSaver((key, value) -> this.save);
+		this.storage.set("alice", new Account("alice"));
+		this.storage.set("bob", new Account("bob"));
+
+		this.save.complete(null);
+
+		assertFalse(this.storage.isDemoted("alice"));
+	}
+
+	@DatabaseTable(tableName = "accounts")
+	public static class Account extends AbstractDataEntity<String> {
+		@DatabaseField(id = true) private String name;
+
+		public Account() {}
+
+		Account(String name) {
+			this.name = name;
+		}
+
+		@Override
+		public String getKey() {
+			return this.name;
+		}
+	}
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package com.enhancedprojects.enhancedspigot.data.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyPresenceFilterTest {
+	private static final int KEYS = 10_000;
+
+	@Test
+	void everyAddedKeyMightBeContained() {
+		KeyPresenceFilter<String> filter = new KeyPresenceFilter<>(KEYS, 0.01D, 0L);
+		filter.setReady();
+		for (int i = 0; i < KEYS; i++) {
+			filter.add("key-" + i);
+		}
+
+		for (int i = 0; i < KEYS; i++) {
+			assertTrue(filter.mightContain("key-" + i));
+		}
+	}
+
+	@Test
+	void falsePositiveRateStaysNearRequestedRate() {
+		KeyPresenceFilter<String> filter = new KeyPresenceFilter<>(KEYS, 0.01D, 0L);
+		filter.setReady();
+		for (int i = 0; i < KEYS; i++) {
+			filter.add("key-" + i);
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < KEYS; i++) {
+			if (filter.mightContain("missing-" + i)) falsePositives++;
+		}
+		assertTrue(falsePositives < KEYS * 0.03D, "False positives: " + falsePositives);
+	}
+
+	@Test
+	void filterThatIsNotReadyAnswersMaybe() {
+		KeyPresenceFilter<String> filter = new KeyPresenceFilter<>(KEYS, 0.01D, 0L);
+		assertTrue(filter.mightContain("never-added"));
+	}
+
+	@Test
+	void clearRemovesKeysAndAcceptsNewOnes() {
+		KeyPresenceFilter<String> filter = new KeyPresenceFilter<>(KEYS, 0.01D, 0L);
+		filter.setReady();
+		filter.add("before");
+		filter.clear();
+		assertFalse(filter.mightContain("before"));
+
+		filter.add("after");
+		assertTrue(filter.mightContain("after"));
+	}
+
+	@Test
+	void keysAddedWhileClearingAreNotLostAfterLastClear() throws Exception {
+		KeyPresenceFilter<Integer> filter = new KeyPresenceFilter<>(KEYS, 0.01D, 0L);
+		filter.setReady();
+		AtomicLong clock = new AtomicLong();
+		AtomicLong lastClear = new AtomicLong();
+		long[] addStartedAt = new long[3 * KEYS];
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			CountDownLatch start = new CountDownLatch(1);
+			List<Future<?>> jobs = new ArrayList<>();
+			for (int thread = 0; thread < 3; thread++) {
+				int offset = thread * KEYS;
+				jobs.add(executor.submit(() -> {
+					start.await();
+					for (int key = offset; key < offset + KEYS; key++) {
+						addStartedAt[key] = clock.incrementAndGet();
+						filter.add(key);
+					}
+					return null;
+				}));
+			}
+			jobs.add(executor.submit(() -> {
+				start.await();
+				for (int i = 0; i < 200; i++) {
+					filter.clear();
+					lastClear.set(clock.incrementAndGet());
+				}
+				return null;
+			}));
+			start.countDown();
+			for (Future<?> job : jobs) {
+				job.get();
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		// Keys added during clear may be cleared, keys added after the last clear returned must stay
+		for (int key = 0; key < addStartedAt.length; key++) {
+			if (addStartedAt[key] > lastClear.get()) assertTrue(filter.mightContain(key), "Key " + key + " was lost");
+		}
+	}
+
+	@Test
+	void negativeCacheRejectsMissingKeyUntilItIsAdded() {
+		KeyPresenceFilter<String> filter = new KeyPresenceFilter<>(KEYS, 0.01D, 60_000L);
+		filter.markMissing("key");
+		assertFalse(filter.mightContain("key"));
+
+		filter.add("key");
+		assertTrue(filter.mightContain("key"));
+	}
+}
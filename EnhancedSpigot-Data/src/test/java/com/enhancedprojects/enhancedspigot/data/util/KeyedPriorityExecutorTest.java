@@ -0,0 +1,100 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+package com.enhancedprojects.enhancedspigot.data.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyedPriorityExecutorTest {
+	private ExecutorService pool;
+	private KeyedPriorityExecutor executor;
+
+	@BeforeEach
+	void setUp() {
+		this.pool = Executors.newFixedThreadPool(4);
+		this.executor = new KeyedPriorityExecutor(this.pool, 16);
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.pool.shutdownNow();
+	}
+
+	@Test
+	void jobOfMoreKeysRunsBetweenJobsOfItsKeys() throws Exception {
+		List<String> order = new CopyOnWriteArrayList<>();
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(3);
+
+		this.executor.execute("alice", () -> {
+			await(release);
+			order.add("alice");
+			done.countDown();
+		});
+		this.executor.execute(Arrays.asList("alice", "bob"), () -> {
+			order.add("batch");
+			done.countDown();
+		});
+		this.executor.execute("bob", () -> {
+			order.add("bob");
+			done.countDown();
+		});
+
+		// Job of bob waits for the batch, which waits for the job of alice
+		Thread.sleep(100L);
+		assertTrue(order.isEmpty());
+
+		release.countDown();
+		assertTrue(done.await(5L, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("alice", "batch", "bob"), order);
+	}
+
+	@Test
+	void jobsOfMoreKeysDoNotBlockEachOther() throws Exception {
+		CountDownLatch done = new CountDownLatch(100);
+		for (int i = 0; i < 50; i++) {
+			List<String> keys = i % 2 == 0 ?
+				Arrays.asList("alice", "bob", "carol") :
+				Arrays.asList("carol", "bob", "alice");
+			this.executor.execute(keys, done::countDown);
+			this.executor.execute(keys.get(i % 3), done::countDown);
+		}
+
+		assertTrue(done.await(5L, TimeUnit.SECONDS));
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread()
+				.interrupt();
+		}
+	}
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2026 KPG-TB
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *        http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+
+
+package com.enhancedprojects.enhancedspigot.data.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class PriorityJobQueueTest {
+	@Test
+	void higherPriorityRunsFirstWithoutAging() throws Exception {
+		PriorityJobQueue queue = new PriorityJobQueue(0L);
+		AsyncJob<Void> low = job(1);
+		Thread.sleep(50L);
+		AsyncJob<Void> high = job(3);
+		queue.offer(low);
+		queue.offer(high);
+
+		assertSame(high, queue.poll());
+		assertSame(low, queue.poll());
+	}
+
+	@Test
+	void equalPrioritiesRunInCreationOrder() {
+		PriorityJobQueue queue = new PriorityJobQueue(10L);
+		AsyncJob<Void> first = job(2);
+		AsyncJob<Void> second = job(2);
+		AsyncJob<Void> third = job(2);
+		queue.offer(third);
+		queue.offer(first);
+		queue.offer(second);
+
+		assertSame(first, queue.poll());
+		assertSame(second, queue.poll());
+		assertSame(third, queue.poll());
+	}
+
+	@Test
+	void waitingJobOvertakesNewerJobsOfHigherPriority() throws Exception {
+		PriorityJobQueue queue = new PriorityJobQueue(20L);
+		AsyncJob<Void> old = job(1);
+		// Waiting 200ms counts as ~10 more levels, more than the 2 levels between jobs
+		Thread.sleep(200L);
+		AsyncJob<Void> fresh = job(3);
+		queue.offer(fresh);
+		queue.offer(old);
+
+		assertSame(old, queue.poll());
+		assertSame(fresh, queue.poll());
+	}
+
+	@Test
+	void newerJobOfHigherPriorityRunsFirstBeforeAgingCatchesUp() {
+		PriorityJobQueue queue = new PriorityJobQueue(60_000L);
+		AsyncJob<Void> old = job(1);
+		AsyncJob<Void> fresh = job(3);
+		queue.offer(old);
+		queue.offer(fresh);
+
+		assertSame(fresh, queue.poll());
+		assertSame(old, queue.poll());
+	}
+
+	@Test
+	void replacingJobKeepsPlaceOfSource() throws Exception {
+		PriorityJobQueue queue = new PriorityJobQueue(20L);
+		AsyncJob<Void> source = job(1);
+		Thread.sleep(200L);
+		AsyncJob<Void> fresh = job(3);
+		AsyncJob<Void> replacement = new AsyncJob<>(source, () -> null, new CompletableFuture<>());
+		queue.offer(fresh);
+		queue.offer(replacement);
+
+		assertSame(replacement, queue.poll());
+	}
+
+	@Test
+	void depthsAreTrackedPerPriority() {
+		PriorityJobQueue queue = new PriorityJobQueue(0L);
+		queue.offer(job(1));
+		queue.offer(job(1));
+		queue.offer(job(5));
+		assertEquals(2, queue.getDepths()
+			.get(1));
+		assertEquals(1, queue.getDepths()
+			.get(5));
+
+		queue.poll();
+		assertEquals(0, queue.getDepths()
+			.get(5));
+		assertEquals(1L, queue.getWaitTimes()
+			.get(5)
+			.getCount());
+	}
+
+	private static AsyncJob<Void> job(int priority) {
+		return new AsyncJob<>(priority, 0L, () -> null, new CompletableFuture<>());
+	}
+}